@@ -1,11 +1,15 @@
 package astar;
 
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.PriorityQueue;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
 
 /**
  * 
@@ -20,11 +24,23 @@ import java.util.Collection;
  */
 public class AStar<T extends INode<T>> {
 
-	private final PriorityQueue<NodeData> worklist =
-			new PriorityQueue<NodeData>((a, b) -> Double.compare(a.cost(), b.cost()));
-	private final Map<T, NodeData> calculatedData = new HashMap<T, NodeData>();
-	private final T start;
+	// number of expansions between checks of whether a search was cancelled
+	private static final int CANCEL_CHECK_INTERVAL = 64;
+
+	// how a call to expand ended
+	private static final int PAUSED = 0;
+	private static final int FINISHED = 1;
+	private static final int CANCELLED = 2;
+
+	private final INodeStateMap<T> states;
+	private final IOpenList worklist;
+	private T start;
 	private final ICostHeuristic<T> heuristic;
+	private ISearchListener<T> listener;
+	private int expanded;
+
+	// counts runs, so that a search handle can tell it has been overtaken
+	private long runs;
 
 	/**
 	 * 
@@ -37,9 +53,85 @@ public class AStar<T extends INode<T>> {
 	 *            A function that estimates the cost between two nodes
 	 */
 	public AStar(T start, ICostHeuristic<T> heuristic) {
+		this(start, heuristic, new NodeStateMap<T>());
+	}
+
+	/**
+	 * 
+	 * Initializes the algorithm with a starting node, the heuristic function
+	 * to use, and the map that stores the state of each discovered node.
+	 * 
+	 * @param start
+	 *            The root node of the shortest path tree
+	 * @param heuristic
+	 *            A function that estimates the cost between two nodes
+	 * @param states
+	 *            Stores per-node data, cleared at the start of every run
+	 */
+	public AStar(T start, ICostHeuristic<T> heuristic, INodeStateMap<T> states) {
+		this(start, heuristic, states, new BinaryHeapOpenList(states));
+	}
+
+	/**
+	 * 
+	 * Initializes the algorithm with a starting node, the heuristic function
+	 * to use, the map that stores the state of each discovered node, and the
+	 * open list that orders discovered nodes by cost.
+	 * 
+	 * <p>
+	 * The open list must have been created for the given state map.
+	 * </p>
+	 * 
+	 * @param start
+	 *            The root node of the shortest path tree
+	 * @param heuristic
+	 *            A function that estimates the cost between two nodes
+	 * @param states
+	 *            Stores per-node data, cleared at the start of every run
+	 * @param worklist
+	 *            Orders the slots of the state map that are waiting to be
+	 *            expanded
+	 */
+	public AStar(T start, ICostHeuristic<T> heuristic, INodeStateMap<T> states,
+			IOpenList worklist) {
 		this.start = start;
 		this.heuristic = heuristic;
+		this.states = states;
+		this.worklist = worklist;
+	}
+
+	/**
+	 * 
+	 * Sets the node later searches start from, so that one instance and its
+	 * state map can be reused for searches between many pairs of nodes.
+	 * 
+	 * @param start
+	 *            The root node of the shortest path tree
+	 */
+	public void setStart(T start) {
+		this.start = start;
+	}
 
+	/**
+	 * 
+	 * Gets the number of nodes taken from the open list by the last search,
+	 * including the goal.
+	 * 
+	 * @return The number of nodes expanded
+	 */
+	public int getExpanded() {
+		return this.expanded;
+	}
+
+	/**
+	 * 
+	 * Sets the listener told about each node reached by later searches.
+	 * 
+	 * @param listener
+	 *            The listener, or null for none
+	 */
+	public void setListener(ISearchListener<T> listener) {
+		this.listener = listener;
 	}
 
 	/**
@@ -63,7 +155,8 @@ public class AStar<T extends INode<T>> {
 	 * @return Resulting data calculated for the node by A*
 	 */
 	public NodeData getData(T node) {
-		return this.calculatedData.get(node);
+		int slot = this.states.get(node);
+		return slot == INodeStateMap.NONE ? null : new NodeData(slot);
 	}
 
 	/**
@@ -78,22 +171,172 @@ public class AStar<T extends INode<T>> {
 	 * @param goal
 	 */
 	public void calculate(T goal) {
+		this.calculate(goal, null);
+	}
 
-		// calculate the data for the start node
-		NodeData startData =
-				new NodeData(start, null, 0, this.heuristic.approxCost(this.start, goal));
+	/**
+	 * 
+	 * Performs A* until the given goal node is found or the search is
+	 * cancelled. Cancellation is checked every few expansions, so a search
+	 * that has been overtaken by a newer request stops soon after.
+	 * 
+	 * <p>
+	 * After a cancelled search the data of each node is incomplete and
+	 * should not be used.
+	 * </p>
+	 * 
+	 * @param goal
+	 *            The node to search for, or null to search everything
+	 * @param cancelled
+	 *            Tells whether to give up on the search, may be null
+	 * @return False if the search was cancelled, otherwise true
+	 */
+	public boolean calculate(T goal, BooleanSupplier cancelled) {
+		return this.search(node -> this.heuristic.approxCost(node, goal),
+				goal == null ? null : goal::equals, cancelled);
+	}
+
+	/**
+	 * 
+	 * Performs A* until the first of several targets is found, which is the
+	 * nearest of them if the heuristic never overestimates. Each node is
+	 * estimated by the least of its heuristic values to each target. The path
+	 * to the target found can be read with {@link #getPath(INode)}.
+	 * 
+	 * @param targets
+	 *            The nodes to search for
+	 * @return The target found, or null if none can be reached
+	 */
+	public T calculateNearest(Collection<T> targets) {
+		Set<T> remaining = new HashSet<T>(targets);
+
+		if (remaining.isEmpty()) {
+			return null;
+		}
+
+		List<T> found = new ArrayList<T>(1);
 
-		this.calculatedData.clear();
-		this.calculatedData.put(this.start, startData);
+		this.search(this.nearestOf(targets), node -> {
+			if (remaining.contains(node)) {
+				found.add(node);
+				return true;
+			}
+
+			return false;
+		}, null);
+
+		return found.isEmpty() ? null : found.get(0);
+	}
+
+	/**
+	 * 
+	 * Performs one A* search that goes on until every one of several targets
+	 * has been found, and returns the path to each. Each node is estimated by
+	 * the least of its heuristic values to each target, so the search is
+	 * drawn towards whichever targets are still closest, and the nodes
+	 * expanded on the way to one target serve the paths to the others.
+	 * 
+	 * <p>
+	 * If the heuristic is consistent, every path is a shortest path. Each
+	 * path can also be read with {@link #getPath(INode)} until the next run.
+	 * </p>
+	 * 
+	 * @param targets
+	 *            The nodes to search for
+	 * @return The path from start to each target, in the order the targets
+	 *         were given, empty for targets that cannot be reached
+	 */
+	public Map<T, List<T>> calculateAll(Collection<T> targets) {
+		Set<T> remaining = new HashSet<T>(targets);
+		Map<T, List<T>> paths = new LinkedHashMap<T, List<T>>();
+
+		if (!remaining.isEmpty()) {
+			this.search(this.nearestOf(targets),
+					node -> remaining.remove(node) && remaining.isEmpty(), null);
+		}
+
+		for (T target : targets) {
+			paths.put(target, this.getPath(target));
+		}
+
+		return paths;
+	}
+
+	// estimates a node by its heuristic value to the nearest target
+	private ToDoubleFunction<T> nearestOf(Collection<T> targets) {
+		List<T> list = new ArrayList<T>(new HashSet<T>(targets));
+
+		return node -> {
+			double best = Double.POSITIVE_INFINITY;
+
+			for (int i = 0; i < list.size(); i++) {
+				best = Math.min(best, this.heuristic.approxCost(node, list.get(i)));
+			}
 
+			return best;
+		};
+	}
+
+	/**
+	 * 
+	 * Starts a search for the given goal that runs only when stepped, so that
+	 * a long search can be spread over several frames. The open list and node
+	 * data are kept in this instance between steps, so starting another
+	 * search or calculating on this instance abandons the handle.
+	 * 
+	 * @param goal
+	 *            The node to search for, or null to search everything
+	 * @param version
+	 *            The version of the graph the search is started on, for
+	 *            {@link Search#isStale(long)}
+	 * @return A handle to step the search with
+	 */
+	public Search begin(T goal, long version) {
+		ToDoubleFunction<T> estimate = node -> this.heuristic.approxCost(node, goal);
+
+		this.start(estimate);
+		return new Search(goal, version, estimate);
+	}
+
+	// runs A* from start, estimating each node with the given function, until
+	// the stop test (which may be null) accepts an expanded node
+	private boolean search(ToDoubleFunction<T> estimate, Predicate<T> stop,
+			BooleanSupplier cancelled) {
+		this.start(estimate);
+		return this.expand(estimate, stop, cancelled, Integer.MAX_VALUE) != CANCELLED;
+	}
+
+	// clears the data of the last run and opens the start node
+	private void start(ToDoubleFunction<T> estimate) {
+
+		INodeStateMap<T> states = this.states;
+
+		this.runs++;
+		this.expanded = 0;
+
+		states.clear();
 		this.worklist.clear();
 
-		this.worklist.add(
-				new NodeData(this.start, null, 0, this.heuristic.approxCost(this.start, goal)));
+		// calculate the data for the start node
+		int startSlot = states.put(this.start);
+		states.setCostFromStart(startSlot, 0);
+		states.setHeuristicValue(startSlot, estimate.applyAsDouble(this.start));
+
+		this.worklist.add(startSlot, this.cost(startSlot));
+		this.reached(startSlot);
+
+	}
+
+	// expands nodes until the stop test accepts one, the open list runs out,
+	// the search is cancelled, or limit nodes have been expanded since start
+	private int expand(ToDoubleFunction<T> estimate, Predicate<T> stop,
+			BooleanSupplier cancelled, int limit) {
+
+		INodeStateMap<T> states = this.states;
 
 		// these variables store information about the current node being
 		// visited
-		NodeData cur;
+		int cur;
 		T curNode;
 		double curCostFromStart;
 
@@ -103,19 +346,35 @@ public class AStar<T extends INode<T>> {
 		// a neighbor of curNode
 		T neighbor;
 
-		// stores the cost of the current node to neighbor
-		double costFromCurNodeToNeighbor;
+		// the slot holding the data of neighbor
+		int neighborSlot;
+
+		// number of nodes expanded so far
+		int expanded = this.expanded;
 
-		// the data of neighbor
-		NodeData neighborData;
+		while (true) {
 
-		while (!this.worklist.isEmpty()) {
+			if (expanded >= limit) {
+				this.expanded = expanded;
+				return PAUSED;
+			}
+
+			if ((cur = this.worklist.poll()) == INodeStateMap.NONE) {
+				break;
+			}
+
+			expanded++;
 
-			cur = this.worklist.poll();
-			curNode = cur.node;
-			curCostFromStart = cur.costFromStart;
+			if (cancelled != null && expanded % CANCEL_CHECK_INTERVAL == 0
+					&& cancelled.getAsBoolean()) {
+				this.expanded = expanded;
+				return CANCELLED;
+			}
 
-			if (curNode == goal) {
+			curNode = states.getNode(cur);
+			curCostFromStart = states.getCostFromStart(cur);
+
+			if (stop != null && stop.test(curNode)) {
 				break;
 			}
 
@@ -124,37 +383,45 @@ public class AStar<T extends INode<T>> {
 			for (Edge<T> edge : edges) {
 
 				neighbor = edge.getTo();
-				costFromCurNodeToNeighbor = edge.getCost();
 
-				costFromStart = curCostFromStart + costFromCurNodeToNeighbor;
+				costFromStart = curCostFromStart + edge.getCost();
 
-				neighborData = this.calculatedData.get(neighbor);
+				neighborSlot = states.get(neighbor);
 
 				// if neighbor has never been visited, then calculate its data
 				// this includes calculating its heuristic, giving it its cost
 				// from start through curNode, and setting its from to curNode
 				// finally, add it to the worklist
-				if (neighborData == null) {
+				if (neighborSlot == INodeStateMap.NONE) {
 
-					neighborData = new NodeData(neighbor, cur, costFromStart,
-							this.heuristic.approxCost(neighbor, goal));
+					neighborSlot = states.put(neighbor);
+					states.setCostFromStart(neighborSlot, costFromStart);
+					states.setHeuristicValue(neighborSlot, estimate.applyAsDouble(neighbor));
+					states.setParent(neighborSlot, cur);
 
-					this.calculatedData.put(neighbor, neighborData);
-					this.worklist.add(neighborData);
+					this.worklist.add(neighborSlot, this.cost(neighborSlot));
+					this.reached(neighborSlot);
 
 				}
 				// if this neighbor has been visited before, then check to see
 				// if its cost from curNode is less
 				// if so, then update its costFromStart and change its from node
 				// to curNode
-				// add it to the worklist to propagate these changes through
+				// move it up the worklist if it is still waiting there,
+				// otherwise add it again to propagate these changes through
 				// neighbors of the neighbor
-				else if (costFromStart < neighborData.costFromStart) {
+				else if (costFromStart < states.getCostFromStart(neighborSlot)) {
+
+					states.setCostFromStart(neighborSlot, costFromStart);
+					states.setParent(neighborSlot, cur);
 
-					neighborData.costFromStart = costFromStart;
-					neighborData.from = cur;
+					if (states.getHeapIndex(neighborSlot) == INodeStateMap.NONE) {
+						this.worklist.add(neighborSlot, this.cost(neighborSlot));
+					} else {
+						this.worklist.decrease(neighborSlot, this.cost(neighborSlot));
+					}
 
-					this.worklist.add(neighborData);
+					this.reached(neighborSlot);
 
 				}
 
@@ -162,6 +429,9 @@ public class AStar<T extends INode<T>> {
 
 		}
 
+		this.expanded = expanded;
+		return FINISHED;
+
 	}
 
 	/**
@@ -178,12 +448,12 @@ public class AStar<T extends INode<T>> {
 
 		List<T> path = new ArrayList<T>();
 
-		NodeData cur = this.calculatedData.get(goal);
+		int cur = this.states.get(goal);
 
-		while (cur != null && cur != this.start) {
+		while (cur != INodeStateMap.NONE) {
 
-			path.add(cur.node);
-			cur = cur.from;
+			path.add(this.states.getNode(cur));
+			cur = this.states.getParent(cur);
 
 		}
 
@@ -191,24 +461,149 @@ public class AStar<T extends INode<T>> {
 
 	}
 
+	private void reached(int slot) {
+		if (this.listener != null) {
+			this.listener.nodeReached(this.states.getNode(slot),
+					this.states.getCostFromStart(slot), this.states.getHeuristicValue(slot));
+		}
+	}
+
+	private double cost(int slot) {
+		return this.states.getCostFromStart(slot) + this.states.getHeuristicValue(slot);
+	}
+
+	/**
+	 * A search started by {@link AStar#begin(INode, long)} that expands nodes
+	 * only when stepped. It belongs to the instance that started it and is
+	 * abandoned when that instance starts another run.
+	 */
+	public class Search {
+
+		private final T goal;
+		private final long version;
+		private final long run;
+		private final ToDoubleFunction<T> estimate;
+		private final Predicate<T> stop;
+		private boolean done;
+
+		Search(T goal, long version, ToDoubleFunction<T> estimate) {
+			this.goal = goal;
+			this.version = version;
+			this.run = AStar.this.runs;
+			this.estimate = estimate;
+			this.stop = goal == null ? null : goal::equals;
+		}
+
+		/**
+		 * 
+		 * Expands up to the given number of nodes.
+		 * 
+		 * @param maxExpansions
+		 *            The greatest number of nodes to expand in this step
+		 * @return Whether the search is done
+		 * @throws IllegalStateException
+		 *             If the instance has started another run since
+		 */
+		public boolean step(int maxExpansions) {
+			this.check();
+
+			if (!this.done) {
+				int limit = (int) Math.min(Integer.MAX_VALUE,
+						(long) AStar.this.expanded + maxExpansions);
+
+				this.done = AStar.this.expand(this.estimate, this.stop, null,
+						limit) == FINISHED;
+			}
+
+			return this.done;
+		}
+
+		/**
+		 * @return Whether the goal has been found, or every reachable node
+		 *         has been expanded
+		 */
+		public boolean isDone() {
+			return this.done;
+		}
+
+		/**
+		 * @return The path from start to the goal, as for
+		 *         {@link AStar#getPath(INode)}, or empty if there is none
+		 * @throws IllegalStateException
+		 *             If the search is not done, or the instance has started
+		 *             another run since
+		 */
+		public List<T> result() {
+			this.check();
+
+			if (!this.done) {
+				throw new IllegalStateException("search is not done");
+			}
+
+			return AStar.this.getPath(this.goal);
+		}
+
+		/**
+		 * @return The number of nodes expanded so far
+		 */
+		public int getExpanded() {
+			this.check();
+			return AStar.this.expanded;
+		}
+
+		/**
+		 * @return The version of the graph the search was started on
+		 */
+		public long getVersion() {
+			return this.version;
+		}
+
+		/**
+		 * 
+		 * Tells whether the graph has changed since the search started, in
+		 * which case its result may no longer be right and it should be
+		 * started again.
+		 * 
+		 * @param version
+		 *            The current version of the graph
+		 * @return Whether the versions differ
+		 */
+		public boolean isStale(long version) {
+			return version != this.version;
+		}
+
+		/**
+		 * @return Whether the instance has started another run since, so
+		 *         that this search can no longer be stepped
+		 */
+		public boolean isAbandoned() {
+			return this.run != AStar.this.runs;
+		}
+
+		private void check() {
+			if (this.isAbandoned()) {
+				throw new IllegalStateException("search was abandoned by a later run");
+			}
+		}
+
+	}
+
 	/**
 	 * Stores data calculated by A* for each node. Contains the node, the node
 	 * before this node in the path, the cost from start to get to this node,
 	 * and the estimated distance from start to this node using the heuristic.
+	 * 
+	 * <p>
+	 * This is a view of the node's slot in the state map, so it only reflects
+	 * the last run of A* and should not be kept across runs.
+	 * </p>
 	 */
 	public class NodeData {
 
-		private final T node;
-		private NodeData from; // may be null if no node before this one in the
-								// path
-		private double costFromStart;
-		private final double heuristicValue;
-
-		NodeData(T node, NodeData from, double costFromStart, double heuristicValue) {
-			this.node = node;
-			this.from = from;
-			this.costFromStart = costFromStart;
-			this.heuristicValue = heuristicValue;
+		private final int slot;
+
+		NodeData(int slot) {
+			this.slot = slot;
 		}
 
 		/**
@@ -216,14 +611,14 @@ public class AStar<T extends INode<T>> {
 		 *         cost from the heuristic function
 		 */
 		public double cost() {
-			return this.costFromStart + this.heuristicValue;
+			return AStar.this.cost(this.slot);
 		}
 
 		/**
 		 * @return The node this data is associated with
 		 */
 		public T getNode() {
-			return this.node;
+			return AStar.this.states.getNode(this.slot);
 		}
 
 		/**
@@ -231,7 +626,8 @@ public class AStar<T extends INode<T>> {
 		 * @return The node before this node in the path from start to this node
 		 */
 		public NodeData getFrom() {
-			return this.from;
+			int from = AStar.this.states.getParent(this.slot);
+			return from == INodeStateMap.NONE ? null : new NodeData(from);
 		}
 
 		/**
@@ -239,7 +635,7 @@ public class AStar<T extends INode<T>> {
 		 * @return The cost to get to this node from start
 		 */
 		public double getCostFromStart() {
-			return this.costFromStart;
+			return AStar.this.states.getCostFromStart(this.slot);
 		}
 
 		/**
@@ -248,7 +644,7 @@ public class AStar<T extends INode<T>> {
 		 *         heuristic function
 		 */
 		public double getHeuristicValue() {
-			return this.heuristicValue;
+			return AStar.this.states.getHeuristicValue(this.slot);
 		}
 
 	}
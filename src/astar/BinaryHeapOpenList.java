@@ -0,0 +1,130 @@
+package astar;
+
+import java.util.Arrays;
+
+/**
+ *
+ * An {@link IOpenList} backed by a binary min-heap. Each slot's position in
+ * the heap is kept as its heap index in the state map, so a slot's cost can be
+ * decreased in place instead of being added again.
+ *
+ * <p>
+ * Works with any non-negative costs and is the open list A* uses by default.
+ * </p>
+ */
+public class BinaryHeapOpenList implements IOpenList {
+
+	private final INodeStateMap<?> states;
+
+	// slots and their costs, both ordered as a heap
+	private int[] heap = new int[64];
+	private double[] costs = new double[64];
+	private int size;
+
+	/**
+	 * @param states
+	 *            The state map whose slots this list orders
+	 */
+	public BinaryHeapOpenList(INodeStateMap<?> states) {
+		this.states = states;
+	}
+
+	@Override
+	public void add(int slot, double cost) {
+		if (this.size == this.heap.length) {
+			this.heap = Arrays.copyOf(this.heap, this.size * 2);
+			this.costs = Arrays.copyOf(this.costs, this.size * 2);
+		}
+
+		this.siftUp(this.size++, slot, cost);
+	}
+
+	@Override
+	public void decrease(int slot, double cost) {
+		this.siftUp(this.states.getHeapIndex(slot), slot, cost);
+	}
+
+	@Override
+	public int poll() {
+		if (this.size == 0) {
+			return INodeStateMap.NONE;
+		}
+
+		int first = this.heap[0];
+		int last = this.heap[--this.size];
+
+		this.states.setHeapIndex(first, INodeStateMap.NONE);
+
+		if (this.size > 0) {
+			this.siftDown(0, last, this.costs[this.size]);
+		}
+
+		return first;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	@Override
+	public void clear() {
+		this.size = 0;
+	}
+
+	// moves the slot from the given position towards the root until its
+	// parent costs no more than it does
+	private void siftUp(int index, int slot, double cost) {
+		while (index > 0) {
+
+			int parentIndex = (index - 1) >>> 1;
+
+			if (this.costs[parentIndex] <= cost) {
+				break;
+			}
+
+			this.move(parentIndex, index);
+			index = parentIndex;
+
+		}
+
+		this.set(index, slot, cost);
+	}
+
+	// moves the slot from the given position towards the leaves until both
+	// of its children cost no less than it does
+	private void siftDown(int index, int slot, double cost) {
+		int half = this.size >>> 1;
+
+		while (index < half) {
+
+			int childIndex = 2 * index + 1;
+			int rightIndex = childIndex + 1;
+
+			if (rightIndex < this.size && this.costs[rightIndex] < this.costs[childIndex]) {
+				childIndex = rightIndex;
+			}
+
+			if (cost <= this.costs[childIndex]) {
+				break;
+			}
+
+			this.move(childIndex, index);
+			index = childIndex;
+
+		}
+
+		this.set(index, slot, cost);
+	}
+
+	private void move(int from, int to) {
+		this.set(to, this.heap[from], this.costs[from]);
+	}
+
+	private void set(int index, int slot, double cost) {
+		this.heap[index] = slot;
+		this.costs[index] = cost;
+		this.states.setHeapIndex(slot, index);
+	}
+
+}
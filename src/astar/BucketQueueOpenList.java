@@ -0,0 +1,188 @@
+package astar;
+
+import java.util.Arrays;
+
+/**
+ *
+ * Dial's bucket queue over quantized costs. Keeps one bucket per integer cost
+ * in a circular array that spans from the lowest cost in the queue to the
+ * highest, so adding and removing are both O(1) apart from skipping empty
+ * buckets.
+ *
+ * <p>
+ * The array grows to cover the spread of costs waiting in the queue, which
+ * for A* is bounded by the largest edge cost plus the largest change in the
+ * heuristic along an edge, both measured in quantized steps. It suits graphs
+ * with small integer costs, or a coarse {@link CostQuantizer}.
+ * </p>
+ *
+ * <p>
+ * Like {@link RadixHeapOpenList}, costs are lowered by adding the slot again
+ * with a new ticket kept as its heap index, and a cost lower than the last
+ * removed one is treated as equal to it.
+ * </p>
+ */
+public class BucketQueueOpenList implements IOpenList {
+
+	private final INodeStateMap<?> states;
+	private final CostQuantizer quantizer;
+
+	// bucket i holds entries whose key is the one key in
+	// [cursor, cursor + buckets.length) that is congruent to i
+	private Bucket[] buckets;
+	private int mask;
+	private long cursor;
+	private int entries;
+	private int live;
+	private int nextTicket;
+	private boolean cleared = true;
+
+	/**
+	 * @param states
+	 *            The state map whose slots this list orders
+	 * @param quantizer
+	 *            Turns costs into the integers this list orders by
+	 */
+	public BucketQueueOpenList(INodeStateMap<?> states, CostQuantizer quantizer) {
+		this.states = states;
+		this.quantizer = quantizer;
+		this.buckets = createBuckets(64);
+		this.mask = this.buckets.length - 1;
+	}
+
+	@Override
+	public void add(int slot, double cost) {
+		// the first slot after a clear sets the base key; the list can also
+		// run empty mid-search, and then the last key removed must stay the
+		// base or cheaper slots added next would be raised to the first one
+		if (this.cleared) {
+			this.cleared = false;
+			this.cursor = this.quantizer.quantize(cost);
+		}
+
+		this.push(slot, cost);
+		this.live++;
+	}
+
+	@Override
+	public void decrease(int slot, double cost) {
+		this.push(slot, cost);
+	}
+
+	@Override
+	public int poll() {
+		while (this.live > 0) {
+
+			Bucket bucket = this.buckets[(int) this.cursor & this.mask];
+
+			if (bucket.size == 0) {
+				this.cursor++;
+				continue;
+			}
+
+			int index = --bucket.size;
+			int slot = bucket.slots[index];
+			this.entries--;
+
+			if (this.states.getHeapIndex(slot) == bucket.tickets[index]) {
+				this.states.setHeapIndex(slot, INodeStateMap.NONE);
+				this.live--;
+				return slot;
+			}
+
+		}
+
+		return INodeStateMap.NONE;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.live == 0;
+	}
+
+	@Override
+	public void clear() {
+		if (this.entries > 0) {
+			for (Bucket bucket : this.buckets) {
+				bucket.size = 0;
+			}
+		}
+
+		this.entries = 0;
+		this.live = 0;
+		this.nextTicket = 0;
+		this.cleared = true;
+	}
+
+	private void push(int slot, double cost) {
+		long key = Math.max(this.quantizer.quantize(cost), this.cursor);
+
+		while (key - this.cursor > this.mask) {
+			this.grow();
+		}
+
+		int ticket = this.nextTicket;
+
+		this.nextTicket = (ticket + 1) & Integer.MAX_VALUE;
+		this.states.setHeapIndex(slot, ticket);
+		this.buckets[(int) key & this.mask].add(slot, ticket);
+		this.entries++;
+	}
+
+	// doubles the number of buckets, moving each entry to the bucket of its
+	// key in the larger array
+	private void grow() {
+		Bucket[] old = this.buckets;
+		int oldMask = this.mask;
+
+		this.buckets = createBuckets(old.length * 2);
+		this.mask = this.buckets.length - 1;
+
+		for (int i = 0; i < old.length; i++) {
+
+			Bucket bucket = old[i];
+
+			if (bucket.size == 0) {
+				continue;
+			}
+
+			long key = this.cursor + ((i - this.cursor) & oldMask);
+			Bucket target = this.buckets[(int) key & this.mask];
+
+			for (int j = 0; j < bucket.size; j++) {
+				target.add(bucket.slots[j], bucket.tickets[j]);
+			}
+
+		}
+	}
+
+	private static Bucket[] createBuckets(int count) {
+		Bucket[] buckets = new Bucket[count];
+
+		for (int i = 0; i < count; i++) {
+			buckets[i] = new Bucket();
+		}
+
+		return buckets;
+	}
+
+	private static class Bucket {
+
+		private int[] slots = new int[4];
+		private int[] tickets = new int[4];
+		private int size;
+
+		void add(int slot, int ticket) {
+			if (this.size == this.slots.length) {
+				this.slots = Arrays.copyOf(this.slots, this.size * 2);
+				this.tickets = Arrays.copyOf(this.tickets, this.size * 2);
+			}
+
+			this.slots[this.size] = slot;
+			this.tickets[this.size] = ticket;
+			this.size++;
+		}
+
+	}
+
+}
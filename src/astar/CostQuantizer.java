@@ -0,0 +1,99 @@
+package astar;
+
+/**
+ *
+ * Turns costs into fixed-point integers so they can be ordered by the integer
+ * open lists, {@link RadixHeapOpenList} and {@link BucketQueueOpenList}.
+ *
+ * <p>
+ * A cost is multiplied by a scale and rounded down, so two costs that differ
+ * by less than {@link #getMaxError()} may land on the same integer and be
+ * treated as ties. Rounding down keeps the order of costs that do differ, so
+ * A* still expands nodes in a non-decreasing order and the path it returns
+ * costs at most {@link #getMaxError()} more than the shortest one.
+ * </p>
+ */
+public class CostQuantizer {
+
+	/**
+	 * Keeps only the integer part of each cost, for graphs whose edge costs
+	 * are whole numbers.
+	 */
+	public static final CostQuantizer INTEGER = new CostQuantizer(1);
+
+	private final double scale;
+
+	/**
+	 * @param scale
+	 *            The number of integer steps per unit of cost, must be
+	 *            positive and finite
+	 */
+	public CostQuantizer(double scale) {
+		if (!(scale > 0) || Double.isInfinite(scale)) {
+			throw new IllegalArgumentException("scale must be positive and finite: " + scale);
+		}
+
+		this.scale = scale;
+	}
+
+	/**
+	 *
+	 * Creates a quantizer whose rounding never changes a cost by more than the
+	 * given amount.
+	 *
+	 * @param maxError
+	 *            The largest acceptable difference between a cost and its
+	 *            quantized value, must be positive and large enough that
+	 *            its reciprocal is finite
+	 * @return The quantizer with the coarsest scale meeting the error bound
+	 */
+	public static CostQuantizer forMaxError(double maxError) {
+		if (!(maxError > 0)) {
+			throw new IllegalArgumentException("max error must be positive: " + maxError);
+		}
+
+		return new CostQuantizer(1.0 / maxError);
+	}
+
+	/**
+	 * @param cost
+	 *            A non-negative cost
+	 * @return The cost as a number of steps, rounded down
+	 */
+	public long quantize(double cost) {
+		return (long) Math.floor(cost * this.scale);
+	}
+
+	/**
+	 * @param steps
+	 *            A quantized cost
+	 * @return The smallest cost that quantizes to the given number of steps
+	 */
+	public double dequantize(long steps) {
+		return steps / this.scale;
+	}
+
+	/**
+	 * @param edge
+	 *            The edge whose cost to quantize
+	 * @return The cost of the edge as a number of steps, rounded down
+	 */
+	public long quantize(Edge<?> edge) {
+		return this.quantize(edge.getCost());
+	}
+
+	/**
+	 * @return The number of integer steps per unit of cost
+	 */
+	public double getScale() {
+		return this.scale;
+	}
+
+	/**
+	 * @return The largest amount rounding can remove from a cost
+	 */
+	public double getMaxError() {
+		return 1.0 / this.scale;
+	}
+
+}
@@ -0,0 +1,128 @@
+package astar;
+
+/**
+ *
+ * Stores the per-node search state used by A*. Each node that the search
+ * discovers is given a slot, and all of its data is read and written through
+ * that slot rather than through a per-node object.
+ *
+ * <p>
+ * Slots are handed out densely from zero in the order nodes are first added,
+ * and stay valid until the next call to {@link #clear()}.
+ * </p>
+ *
+ * @param <T>
+ *            The type of nodes whose state is stored
+ */
+public interface INodeStateMap<T extends INode<T>> {
+
+	/**
+	 * Returned in place of a slot when a node has no state, and stored as the
+	 * parent or heap index of a slot that has none.
+	 */
+	int NONE = -1;
+
+	/**
+	 *
+	 * Finds the slot of the given node.
+	 *
+	 * @param node
+	 *            The node to look up
+	 * @return The slot of the node, or {@link #NONE} if it has no state
+	 */
+	int get(T node);
+
+	/**
+	 *
+	 * Finds the slot of the given node, giving it a fresh slot if it has none.
+	 * A fresh slot has an infinite cost from start, a heuristic value of zero,
+	 * and no parent or heap index.
+	 *
+	 * @param node
+	 *            The node to look up or add
+	 * @return The slot of the node
+	 */
+	int put(T node);
+
+	/**
+	 * @param slot
+	 *            A slot returned by {@link #put(INode)}
+	 * @return The node stored in the slot
+	 */
+	T getNode(int slot);
+
+	/**
+	 * @param slot
+	 *            A slot returned by {@link #put(INode)}
+	 * @return The cost to get to the slot's node from start
+	 */
+	double getCostFromStart(int slot);
+
+	/**
+	 * @param slot
+	 *            A slot returned by {@link #put(INode)}
+	 * @param cost
+	 *            The new cost to get to the slot's node from start
+	 */
+	void setCostFromStart(int slot, double cost);
+
+	/**
+	 * @param slot
+	 *            A slot returned by {@link #put(INode)}
+	 * @return The estimated cost from the slot's node to the goal
+	 */
+	double getHeuristicValue(int slot);
+
+	/**
+	 * @param slot
+	 *            A slot returned by {@link #put(INode)}
+	 * @param value
+	 *            The estimated cost from the slot's node to the goal
+	 */
+	void setHeuristicValue(int slot, double value);
+
+	/**
+	 * @param slot
+	 *            A slot returned by {@link #put(INode)}
+	 * @return The slot of the node before this one in the path, or
+	 *         {@link #NONE}
+	 */
+	int getParent(int slot);
+
+	/**
+	 * @param slot
+	 *            A slot returned by {@link #put(INode)}
+	 * @param parent
+	 *            The slot of the node before this one in the path, or
+	 *            {@link #NONE}
+	 */
+	void setParent(int slot, int parent);
+
+	/**
+	 * @param slot
+	 *            A slot returned by {@link #put(INode)}
+	 * @return The position of the slot in the open list, or {@link #NONE} if
+	 *         it is not in the open list
+	 */
+	int getHeapIndex(int slot);
+
+	/**
+	 * @param slot
+	 *            A slot returned by {@link #put(INode)}
+	 * @param index
+	 *            The position of the slot in the open list, or {@link #NONE}
+	 */
+	void setHeapIndex(int slot, int index);
+
+	/**
+	 * @return The number of nodes that currently have state
+	 */
+	int size();
+
+	/**
+	 * Forgets the state of every node so the map can be reused by another
+	 * search.
+	 */
+	void clear();
+
+}
@@ -0,0 +1,58 @@
+package astar;
+
+/**
+ *
+ * The set of discovered nodes that A* has yet to expand, ordered by cost.
+ * Nodes are referred to by their slot in an {@link INodeStateMap}, and an
+ * open list marks a slot as being in the list through the map's heap index.
+ *
+ * <p>
+ * A slot counts as in the list exactly while its heap index is not
+ * {@link INodeStateMap#NONE}, so {@link #poll()} must reset the heap index of
+ * the slot it returns.
+ * </p>
+ */
+public interface IOpenList {
+
+	/**
+	 *
+	 * Adds a slot that is not currently in the list.
+	 *
+	 * @param slot
+	 *            The slot to add
+	 * @param cost
+	 *            The cost from start plus the heuristic value of the slot
+	 */
+	void add(int slot, double cost);
+
+	/**
+	 *
+	 * Lowers the cost of a slot that is already in the list.
+	 *
+	 * @param slot
+	 *            The slot whose cost dropped
+	 * @param cost
+	 *            The new cost from start plus the heuristic value of the slot
+	 */
+	void decrease(int slot, double cost);
+
+	/**
+	 *
+	 * Removes the slot with the lowest cost.
+	 *
+	 * @return The removed slot, or {@link INodeStateMap#NONE} if the list is
+	 *         empty
+	 */
+	int poll();
+
+	/**
+	 * @return Whether there are no slots left in the list
+	 */
+	boolean isEmpty();
+
+	/**
+	 * Removes every slot so the list can be reused by another search.
+	 */
+	void clear();
+
+}
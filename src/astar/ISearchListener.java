@@ -0,0 +1,27 @@
+package astar;
+
+/**
+ * Told about each node whose cost A* sets while it searches, so that callers
+ * can gather what they need about a search as it runs instead of looking
+ * every node up afterwards.
+ * 
+ * @param <T>
+ *            The type of nodes searched
+ */
+public interface ISearchListener<T extends INode<T>> {
+
+	/**
+	 * Called when a node is first discovered and again each time a cheaper
+	 * way to reach it is found, so the last call for a node carries its
+	 * final cost.
+	 * 
+	 * @param node
+	 *            The node reached
+	 * @param costFromStart
+	 *            The cost of reaching the node from start
+	 * @param heuristicValue
+	 *            The estimated cost from the node to the goal
+	 */
+	void nodeReached(T node, double costFromStart, double heuristicValue);
+
+}
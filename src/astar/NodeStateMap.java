@@ -0,0 +1,244 @@
+package astar;
+
+import java.util.Arrays;
+
+/**
+ *
+ * An open-addressing {@link INodeStateMap} for graphs whose nodes can only be
+ * told apart by {@link Object#equals(Object)} and {@link Object#hashCode()}.
+ *
+ * <p>
+ * Nodes are kept in a keys array and their state in parallel primitive
+ * arrays indexed by slot, so discovering a node allocates nothing once the
+ * arrays have grown to fit the search. Buckets are found by linear probing
+ * and are stamped with a generation, which lets {@link #clear()} run in
+ * constant time: bumping the generation empties every bucket at once.
+ * </p>
+ *
+ * <p>
+ * Cleared keys are only overwritten as slots are reused, so the map keeps
+ * nodes from earlier searches reachable until then.
+ * </p>
+ *
+ * @param <T>
+ *            The type of nodes whose state is stored
+ */
+public class NodeStateMap<T extends INode<T>> implements INodeStateMap<T> {
+
+	private static final int DEFAULT_CAPACITY = 64;
+
+	// buckets, each holding a slot that is only valid if its stamp matches
+	// the current generation
+	private int[] table;
+	private int[] stamps;
+	private int mask;
+	private int generation = 1;
+
+	// slots, all indexed in parallel
+	private Object[] keys;
+	private int[] hashes;
+	private double[] costs;
+	private double[] heuristics;
+	private int[] parents;
+	private int[] heapIndices;
+
+	private int size;
+
+	/**
+	 * Creates an empty map sized for a small search.
+	 */
+	public NodeStateMap() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 *
+	 * Creates an empty map that can hold the given number of nodes before it
+	 * has to grow.
+	 *
+	 * @param expectedNodes
+	 *            The number of nodes a typical search discovers
+	 */
+	public NodeStateMap(int expectedNodes) {
+		int slots = Math.max(expectedNodes, 2);
+
+		this.keys = new Object[slots];
+		this.hashes = new int[slots];
+		this.costs = new double[slots];
+		this.heuristics = new double[slots];
+		this.parents = new int[slots];
+		this.heapIndices = new int[slots];
+
+		this.createTable(tableSizeFor(slots));
+	}
+
+	@Override
+	public int get(T node) {
+		int hash = mix(node.hashCode());
+
+		for (int bucket = hash & this.mask;; bucket = (bucket + 1) & this.mask) {
+
+			if (this.stamps[bucket] != this.generation) {
+				return NONE;
+			}
+
+			int slot = this.table[bucket];
+
+			if (this.hashes[slot] == hash && node.equals(this.keys[slot])) {
+				return slot;
+			}
+
+		}
+	}
+
+	@Override
+	public int put(T node) {
+		int hash = mix(node.hashCode());
+		int bucket = hash & this.mask;
+
+		while (this.stamps[bucket] == this.generation) {
+
+			int slot = this.table[bucket];
+
+			if (this.hashes[slot] == hash && node.equals(this.keys[slot])) {
+				return slot;
+			}
+
+			bucket = (bucket + 1) & this.mask;
+
+		}
+
+		if (this.size == this.keys.length) {
+			this.growSlots();
+		}
+
+		int slot = this.size++;
+
+		this.keys[slot] = node;
+		this.hashes[slot] = hash;
+		this.costs[slot] = Double.POSITIVE_INFINITY;
+		this.heuristics[slot] = 0;
+		this.parents[slot] = NONE;
+		this.heapIndices[slot] = NONE;
+
+		this.stamps[bucket] = this.generation;
+		this.table[bucket] = slot;
+
+		// keep the table at most half full so probe sequences stay short
+		if (this.size * 2 > this.table.length) {
+			this.createTable(this.table.length * 2);
+			this.rehash();
+		}
+
+		return slot;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public T getNode(int slot) {
+		return (T) this.keys[slot];
+	}
+
+	@Override
+	public double getCostFromStart(int slot) {
+		return this.costs[slot];
+	}
+
+	@Override
+	public void setCostFromStart(int slot, double cost) {
+		this.costs[slot] = cost;
+	}
+
+	@Override
+	public double getHeuristicValue(int slot) {
+		return this.heuristics[slot];
+	}
+
+	@Override
+	public void setHeuristicValue(int slot, double value) {
+		this.heuristics[slot] = value;
+	}
+
+	@Override
+	public int getParent(int slot) {
+		return this.parents[slot];
+	}
+
+	@Override
+	public void setParent(int slot, int parent) {
+		this.parents[slot] = parent;
+	}
+
+	@Override
+	public int getHeapIndex(int slot) {
+		return this.heapIndices[slot];
+	}
+
+	@Override
+	public void setHeapIndex(int slot, int index) {
+		this.heapIndices[slot] = index;
+	}
+
+	@Override
+	public int size() {
+		return this.size;
+	}
+
+	@Override
+	public void clear() {
+		this.size = 0;
+		this.generation++;
+
+		// only once every four billion clears do the stamps need resetting
+		if (this.generation == 0) {
+			Arrays.fill(this.stamps, 0);
+			this.generation = 1;
+		}
+	}
+
+	private void createTable(int length) {
+		this.table = new int[length];
+		this.stamps = new int[length];
+		this.mask = length - 1;
+		this.generation = 1;
+	}
+
+	private void rehash() {
+		for (int slot = 0; slot < this.size; slot++) {
+
+			int bucket = this.hashes[slot] & this.mask;
+
+			while (this.stamps[bucket] == this.generation) {
+				bucket = (bucket + 1) & this.mask;
+			}
+
+			this.stamps[bucket] = this.generation;
+			this.table[bucket] = slot;
+
+		}
+	}
+
+	private void growSlots() {
+		int length = this.keys.length * 2;
+
+		this.keys = Arrays.copyOf(this.keys, length);
+		this.hashes = Arrays.copyOf(this.hashes, length);
+		this.costs = Arrays.copyOf(this.costs, length);
+		this.heuristics = Arrays.copyOf(this.heuristics, length);
+		this.parents = Arrays.copyOf(this.parents, length);
+		this.heapIndices = Arrays.copyOf(this.heapIndices, length);
+	}
+
+	// spreads the bits of a hash code so that nearby hash codes, such as
+	// those of neighboring grid nodes, do not cluster in the table
+	private static int mix(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	private static int tableSizeFor(int slots) {
+		int length = Integer.highestOneBit(slots * 2 - 1) << 1;
+		return Math.max(length, 4);
+	}
+
+}
@@ -0,0 +1,173 @@
+package astar;
+
+import java.util.Arrays;
+
+/**
+ *
+ * A monotone radix heap over quantized costs. Each entry is kept in the bucket
+ * given by the highest bit in which its cost differs from the last removed
+ * cost, so adding is O(1) and each entry is only moved to a lower bucket a
+ * bounded number of times, making removal amortized O(1) per bit of cost.
+ *
+ * <p>
+ * Costs are lowered by adding the slot again, and outdated entries are
+ * skipped when they come up. To tell them apart, each entry carries a ticket
+ * and the live entry's ticket is kept as the slot's heap index.
+ * </p>
+ *
+ * <p>
+ * A radix heap needs costs to never drop below the last removed cost, which
+ * holds for A* with a consistent heuristic. A smaller cost is treated as equal
+ * to the last removed one.
+ * </p>
+ */
+public class RadixHeapOpenList implements IOpenList {
+
+	private final INodeStateMap<?> states;
+	private final CostQuantizer quantizer;
+
+	// bucket 0 holds entries equal to last, bucket i holds entries whose
+	// highest bit differing from last is bit i - 1
+	private final Bucket[] buckets = new Bucket[Long.SIZE + 1];
+	private long last;
+	private int live;
+	private int nextTicket;
+	private boolean cleared = true;
+
+	/**
+	 * @param states
+	 *            The state map whose slots this list orders
+	 * @param quantizer
+	 *            Turns costs into the integers this list orders by
+	 */
+	public RadixHeapOpenList(INodeStateMap<?> states, CostQuantizer quantizer) {
+		this.states = states;
+		this.quantizer = quantizer;
+
+		for (int i = 0; i < this.buckets.length; i++) {
+			this.buckets[i] = new Bucket();
+		}
+	}
+
+	@Override
+	public void add(int slot, double cost) {
+		// the first slot after a clear sets the base key; the list can also
+		// run empty mid-search, and then the last key removed must stay the
+		// base or cheaper slots added next would be raised to the first one
+		if (this.cleared) {
+			this.cleared = false;
+			this.last = this.quantizer.quantize(cost);
+		}
+
+		this.push(slot, cost);
+		this.live++;
+	}
+
+	@Override
+	public void decrease(int slot, double cost) {
+		this.push(slot, cost);
+	}
+
+	@Override
+	public int poll() {
+		while (this.live > 0) {
+
+			Bucket first = this.buckets[0];
+
+			if (first.size == 0) {
+				this.redistribute();
+			}
+
+			int index = --first.size;
+			int slot = first.slots[index];
+
+			if (this.states.getHeapIndex(slot) == first.tickets[index]) {
+				this.states.setHeapIndex(slot, INodeStateMap.NONE);
+				this.live--;
+				return slot;
+			}
+
+		}
+
+		return INodeStateMap.NONE;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.live == 0;
+	}
+
+	@Override
+	public void clear() {
+		for (Bucket bucket : this.buckets) {
+			bucket.size = 0;
+		}
+
+		this.live = 0;
+		this.nextTicket = 0;
+		this.cleared = true;
+	}
+
+	private void push(int slot, double cost) {
+		long key = Math.max(this.quantizer.quantize(cost), this.last);
+		int ticket = this.nextTicket;
+
+		this.nextTicket = (ticket + 1) & Integer.MAX_VALUE;
+		this.states.setHeapIndex(slot, ticket);
+		this.buckets[this.bucketOf(key)].add(slot, ticket, key);
+	}
+
+	// moves the smallest entries into bucket 0 by making the smallest key in
+	// the first non-empty bucket the new last key
+	private void redistribute() {
+		int i = 1;
+
+		while (this.buckets[i].size == 0) {
+			i++;
+		}
+
+		Bucket bucket = this.buckets[i];
+		long min = bucket.keys[0];
+
+		for (int j = 1; j < bucket.size; j++) {
+			min = Math.min(min, bucket.keys[j]);
+		}
+
+		this.last = min;
+
+		int size = bucket.size;
+		bucket.size = 0;
+
+		for (int j = 0; j < size; j++) {
+			long key = bucket.keys[j];
+			this.buckets[this.bucketOf(key)].add(bucket.slots[j], bucket.tickets[j], key);
+		}
+	}
+
+	private int bucketOf(long key) {
+		return key == this.last ? 0 : Long.SIZE - Long.numberOfLeadingZeros(key ^ this.last);
+	}
+
+	private static class Bucket {
+
+		private int[] slots = new int[16];
+		private int[] tickets = new int[16];
+		private long[] keys = new long[16];
+		private int size;
+
+		void add(int slot, int ticket, long key) {
+			if (this.size == this.slots.length) {
+				this.slots = Arrays.copyOf(this.slots, this.size * 2);
+				this.tickets = Arrays.copyOf(this.tickets, this.size * 2);
+				this.keys = Arrays.copyOf(this.keys, this.size * 2);
+			}
+
+			this.slots[this.size] = slot;
+			this.tickets[this.size] = ticket;
+			this.keys[this.size] = key;
+			this.size++;
+		}
+
+	}
+
+}
@@ -0,0 +1,94 @@
+package astar.graph;
+
+/**
+ *
+ * An {@link IGraph} held in arrays on the heap. Edge offsets and targets are
+ * stored as ints, and subclasses decide how edge costs are stored.
+ */
+public abstract class ArrayGraph implements IGraph {
+
+	protected final int[] offsets;
+	protected final int[] targets;
+
+	/**
+	 * @param offsets
+	 *            The first edge of each node, followed by the total number of
+	 *            edges
+	 * @param targets
+	 *            The node each edge goes to
+	 */
+	protected ArrayGraph(int[] offsets, int[] targets) {
+		this.offsets = offsets;
+		this.targets = targets;
+	}
+
+	@Override
+	public int getNodeCount() {
+		return this.offsets.length - 1;
+	}
+
+	@Override
+	public long getEdgeCount() {
+		return this.targets.length;
+	}
+
+	@Override
+	public long getFirstEdge(int node) {
+		return this.offsets[node];
+	}
+
+	@Override
+	public long getEdgeEnd(int node) {
+		return this.offsets[node + 1];
+	}
+
+	@Override
+	public int getTarget(long edge) {
+		return this.targets[(int) edge];
+	}
+
+	/**
+	 * @return The approximate number of bytes used by this graph's arrays
+	 */
+	public long getSizeInBytes() {
+		return 4L * this.offsets.length + 4L * this.targets.length
+				+ this.getCostBytes() * this.targets.length;
+	}
+
+	/**
+	 * @return The number of bytes used to store the cost of one edge
+	 */
+	protected abstract int getCostBytes();
+
+	// the offset and target arrays of any graph, shared if it is already
+	// array backed so that converted graphs only add a cost array
+	static int[][] topologyOf(IGraph graph) {
+		if (graph instanceof ArrayGraph) {
+			ArrayGraph arrays = (ArrayGraph) graph;
+			return new int[][] {arrays.offsets, arrays.targets};
+		}
+
+		int nodes = graph.getNodeCount();
+		long edges = graph.getEdgeCount();
+
+		if (edges > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("too many edges for an array graph: " + edges);
+		}
+
+		int[] offsets = new int[nodes + 1];
+		int[] targets = new int[(int) edges];
+
+		for (int node = 0; node < nodes; node++) {
+			offsets[node] = (int) graph.getFirstEdge(node);
+		}
+
+		offsets[nodes] = (int) edges;
+
+		for (int edge = 0; edge < targets.length; edge++) {
+			targets[edge] = graph.getTarget(edge);
+		}
+
+		return new int[][] {offsets, targets};
+	}
+
+}
@@ -0,0 +1,78 @@
+package astar.graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes little-endian values to a channel through a direct buffer, keeping
+ * track of how many bytes have been written so sections can be aligned.
+ */
+class ChannelWriter {
+
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer =
+			ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+	private long written;
+
+	ChannelWriter(WritableByteChannel channel) {
+		this.channel = channel;
+	}
+
+	long position() {
+		return this.written + this.buffer.position();
+	}
+
+	void putInt(int value) throws IOException {
+		this.ensure(4);
+		this.buffer.putInt(value);
+	}
+
+	void putLong(long value) throws IOException {
+		this.ensure(8);
+		this.buffer.putLong(value);
+	}
+
+	void putFloat(float value) throws IOException {
+		this.ensure(4);
+		this.buffer.putFloat(value);
+	}
+
+	void putDouble(double value) throws IOException {
+		this.ensure(8);
+		this.buffer.putDouble(value);
+	}
+
+	void put(byte[] bytes) throws IOException {
+		for (int i = 0; i < bytes.length; i++) {
+			this.ensure(1);
+			this.buffer.put(bytes[i]);
+		}
+	}
+
+	// writes zeros until the position is a multiple of the given alignment
+	void align(int alignment) throws IOException {
+		while (this.position() % alignment != 0) {
+			this.ensure(1);
+			this.buffer.put((byte) 0);
+		}
+	}
+
+	void flush() throws IOException {
+		this.buffer.flip();
+
+		while (this.buffer.hasRemaining()) {
+			this.written += this.channel.write(this.buffer);
+		}
+
+		this.buffer.clear();
+	}
+
+	private void ensure(int bytes) throws IOException {
+		if (this.buffer.remaining() < bytes) {
+			this.flush();
+		}
+	}
+
+}
@@ -0,0 +1,212 @@
+package astar.graph;
+
+import java.util.List;
+import java.util.Random;
+
+import astar.AStar;
+import astar.ICostHeuristic;
+import astar.NodeStateMap;
+
+/**
+ *
+ * Measures the error introduced by storing a graph's costs in a compact
+ * encoding. Compares each edge of the compact graph with the same edge of the
+ * original, and routes random queries on both to see how much longer, in true
+ * cost, the paths found on the compact graph are.
+ */
+public class CostErrorReport {
+
+	// relative differences below this are rounding noise between equally
+	// short paths rather than a worse path
+	private static final double TIE_TOLERANCE = 1e-9;
+
+	private final long edges;
+	private double maxEdgeError;
+	private double meanEdgeError;
+
+	private int queries;
+	private double maxPathError;
+	private double meanPathError;
+	private double maxEstimateError;
+	private int longerPaths;
+
+	private CostErrorReport(long edges) {
+		this.edges = edges;
+	}
+
+	/**
+	 *
+	 * Compares two graphs that have the same nodes and edges but differently
+	 * stored costs.
+	 *
+	 * @param reference
+	 *            The graph with the original costs
+	 * @param compact
+	 *            The graph with the encoded costs
+	 * @param queries
+	 *            The number of random start and goal pairs to route
+	 * @param seed
+	 *            Seeds the choice of start and goal pairs
+	 * @return The resulting report
+	 */
+	public static CostErrorReport compare(IGraph reference, IGraph compact, int queries,
+			long seed) {
+		if (reference.getNodeCount() != compact.getNodeCount()
+				|| reference.getEdgeCount() != compact.getEdgeCount()) {
+			throw new IllegalArgumentException("graphs do not have the same edges");
+		}
+
+		CostErrorReport report = new CostErrorReport(reference.getEdgeCount());
+
+		double totalEdgeError = 0;
+
+		for (long edge = 0; edge < report.edges; edge++) {
+			double error = Math.abs(compact.getCost(edge) - reference.getCost(edge));
+			report.maxEdgeError = Math.max(report.maxEdgeError, error);
+			totalEdgeError += error;
+		}
+
+		report.meanEdgeError = report.edges == 0 ? 0 : totalEdgeError / report.edges;
+
+		ICostHeuristic<GraphNode> dijkstra = (node, goal) -> 0;
+		Random rand = new Random(seed);
+		double totalPathError = 0;
+
+		for (int i = 0; i < queries && reference.getNodeCount() > 0; i++) {
+
+			int start = rand.nextInt(reference.getNodeCount());
+			int goal = rand.nextInt(reference.getNodeCount());
+
+			AStar<GraphNode>.NodeData best = search(reference, start, goal, dijkstra);
+
+			if (best == null) {
+				continue;
+			}
+
+			AStar<GraphNode> compactSearch = new AStar<GraphNode>(new GraphNode(compact, start),
+					dijkstra, new NodeStateMap<GraphNode>());
+			GraphNode compactGoal = new GraphNode(compact, goal);
+
+			compactSearch.calculate(compactGoal);
+
+			List<GraphNode> path = compactSearch.getPath(compactGoal);
+			double trueCost = pathCost(reference, path);
+			double estimate = compactSearch.getData(compactGoal).getCostFromStart();
+
+			double error = best.getCostFromStart() == 0 ? 0
+					: (trueCost - best.getCostFromStart()) / best.getCostFromStart();
+
+			report.queries++;
+			report.maxPathError = Math.max(report.maxPathError, error);
+			report.maxEstimateError =
+					Math.max(report.maxEstimateError, Math.abs(estimate - trueCost));
+			totalPathError += error;
+
+			if (error > TIE_TOLERANCE) {
+				report.longerPaths++;
+			}
+
+		}
+
+		report.meanPathError = report.queries == 0 ? 0 : totalPathError / report.queries;
+
+		return report;
+	}
+
+	private static AStar<GraphNode>.NodeData search(IGraph graph, int start, int goal,
+			ICostHeuristic<GraphNode> heuristic) {
+		AStar<GraphNode> astar = new AStar<GraphNode>(new GraphNode(graph, start), heuristic);
+		GraphNode goalNode = new GraphNode(graph, goal);
+
+		astar.calculate(goalNode);
+
+		return astar.getData(goalNode);
+	}
+
+	// the cost of a path, as returned by AStar.getPath, using the cheapest
+	// edge between each pair of consecutive nodes
+	private static double pathCost(IGraph graph, List<GraphNode> path) {
+		double cost = 0;
+
+		for (int i = path.size() - 1; i > 0; i--) {
+
+			int from = path.get(i).getId();
+			int to = path.get(i - 1).getId();
+			double step = Double.POSITIVE_INFINITY;
+
+			for (long edge = graph.getFirstEdge(from); edge < graph.getEdgeEnd(from); edge++) {
+				if (graph.getTarget(edge) == to) {
+					step = Math.min(step, graph.getCost(edge));
+				}
+			}
+
+			cost += step;
+
+		}
+
+		return cost;
+	}
+
+	/**
+	 * @return The largest difference between an encoded and original edge cost
+	 */
+	public double getMaxEdgeError() {
+		return this.maxEdgeError;
+	}
+
+	/**
+	 * @return The average difference between an encoded and original edge cost
+	 */
+	public double getMeanEdgeError() {
+		return this.meanEdgeError;
+	}
+
+	/**
+	 * @return The number of queries that found a path
+	 */
+	public int getQueries() {
+		return this.queries;
+	}
+
+	/**
+	 * @return The largest amount, relative to the shortest path, by which a
+	 *         path found on the compact graph was longer in original costs
+	 */
+	public double getMaxPathError() {
+		return this.maxPathError;
+	}
+
+	/**
+	 * @return The average amount, relative to the shortest path, by which a
+	 *         path found on the compact graph was longer in original costs
+	 */
+	public double getMeanPathError() {
+		return this.meanPathError;
+	}
+
+	/**
+	 * @return The largest difference between the cost A* reported on the
+	 *         compact graph and the original cost of the same path
+	 */
+	public double getMaxEstimateError() {
+		return this.maxEstimateError;
+	}
+
+	/**
+	 * @return The number of queries whose path on the compact graph was not a
+	 *         shortest path in original costs
+	 */
+	public int getLongerPaths() {
+		return this.longerPaths;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("edges: %d, max edge error: %.6g, mean edge error: %.6g%n"
+				+ "queries: %d, suboptimal: %d, max path error: %.4f%%, "
+				+ "mean path error: %.4f%%, max estimate error: %.6g",
+				this.edges, this.maxEdgeError, this.meanEdgeError, this.queries, this.longerPaths,
+				this.maxPathError * 100, this.meanPathError * 100, this.maxEstimateError);
+	}
+
+}
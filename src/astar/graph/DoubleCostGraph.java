@@ -0,0 +1,37 @@
+package astar.graph;
+
+/**
+ *
+ * An {@link ArrayGraph} that stores each edge cost exactly as a double.
+ *
+ * @see GraphBuilder
+ */
+public class DoubleCostGraph extends ArrayGraph {
+
+	private final double[] costs;
+
+	/**
+	 * @param offsets
+	 *            The first edge of each node, followed by the total number of
+	 *            edges
+	 * @param targets
+	 *            The node each edge goes to
+	 * @param costs
+	 *            The cost of each edge
+	 */
+	public DoubleCostGraph(int[] offsets, int[] targets, double[] costs) {
+		super(offsets, targets);
+		this.costs = costs;
+	}
+
+	@Override
+	public double getCost(long edge) {
+		return this.costs[(int) edge];
+	}
+
+	@Override
+	protected int getCostBytes() {
+		return 8;
+	}
+
+}
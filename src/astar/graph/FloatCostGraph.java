@@ -0,0 +1,55 @@
+package astar.graph;
+
+/**
+ *
+ * An {@link ArrayGraph} that stores each edge cost as a float, halving the
+ * memory used by costs at the price of about seven significant digits.
+ */
+public class FloatCostGraph extends ArrayGraph {
+
+	protected final float[] costs;
+
+	/**
+	 * @param offsets
+	 *            The first edge of each node, followed by the total number of
+	 *            edges
+	 * @param targets
+	 *            The node each edge goes to
+	 * @param costs
+	 *            The cost of each edge
+	 */
+	public FloatCostGraph(int[] offsets, int[] targets, float[] costs) {
+		super(offsets, targets);
+		this.costs = costs;
+	}
+
+	/**
+	 *
+	 * Copies a graph, rounding each of its costs to a float.
+	 *
+	 * @param graph
+	 *            The graph to copy
+	 * @return A graph with the same edges and float costs
+	 */
+	public static FloatCostGraph of(IGraph graph) {
+		int[][] topology = topologyOf(graph);
+		float[] costs = new float[topology[1].length];
+
+		for (int edge = 0; edge < costs.length; edge++) {
+			costs[edge] = (float) graph.getCost(edge);
+		}
+
+		return new FloatCostGraph(topology[0], topology[1], costs);
+	}
+
+	@Override
+	public double getCost(long edge) {
+		return this.costs[(int) edge];
+	}
+
+	@Override
+	protected int getCostBytes() {
+		return 4;
+	}
+
+}
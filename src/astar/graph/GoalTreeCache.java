@@ -0,0 +1,363 @@
+package astar.graph;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ *
+ * Answers queries to a few frequently used goals from precomputed shortest
+ * path trees. For each registered goal, Dijkstra's Algorithm is run once over
+ * the reversed graph, giving every node's distance to the goal and the next
+ * node on a shortest path to it. A path from any start is then found by
+ * following next nodes, in time proportional to its length.
+ *
+ * <p>
+ * Trees are built in the background. Until a goal's tree is ready, queries to
+ * it return null and should be answered by a normal search instead. When the
+ * graph's costs change, {@link #update(IGraph)} discards every tree and
+ * rebuilds those that were cached.
+ * </p>
+ *
+ * <p>
+ * Each tree uses twelve bytes per node. Only as many trees as fit in the
+ * given number of bytes are kept. While there is room, a registered goal's
+ * tree is built as soon as it is missing. Once the cache is full, a tree is
+ * only built for a goal that has been queried more often than the goal of
+ * the least recently queried tree, which it then replaces; otherwise its
+ * queries keep returning null. Query counts are halved now and then, so
+ * goals that were popular long ago do not keep their trees for good. This
+ * way, more goals than fit being queried in turn do not cause a rebuild on
+ * nearly every query.
+ * </p>
+ *
+ * <p>
+ * All methods may be called from any thread.
+ * </p>
+ */
+public class GoalTreeCache {
+
+	private static final int BYTES_PER_NODE = 12;
+
+	// queries per registered goal between halvings of the query counts
+	private static final int AGING = 16;
+
+	private final Executor executor;
+	private final int maxTrees;
+
+	private IGraph reversed;
+	private long generation;
+
+	// the registered goals and how often each was queried
+	private final Map<Integer, Long> registered = new HashMap<Integer, Long>();
+	private long queries;
+
+	private final Set<Integer> building = new HashSet<Integer>();
+	private final Map<Integer, Tree> trees;
+
+	private long built;
+	private long evicted;
+
+	/**
+	 * Creates a cache that builds trees on the common fork/join pool.
+	 *
+	 * @param graph
+	 *            The graph to answer queries on
+	 * @param maxBytes
+	 *            The memory that cached trees may use
+	 */
+	public GoalTreeCache(IGraph graph, long maxBytes) {
+		this(graph, maxBytes, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * @param graph
+	 *            The graph to answer queries on
+	 * @param maxBytes
+	 *            The memory that cached trees may use, enough for at least
+	 *            one tree
+	 * @param executor
+	 *            Runs tree builds
+	 */
+	public GoalTreeCache(IGraph graph, long maxBytes, Executor executor) {
+		long treeBytes = (long) BYTES_PER_NODE * graph.getNodeCount();
+
+		if (maxBytes < treeBytes) {
+			throw new IllegalArgumentException(
+					"room for no trees: " + maxBytes + " bytes, " + treeBytes + " per tree");
+		}
+
+		this.executor = executor;
+		this.maxTrees = (int) Math.min(Integer.MAX_VALUE, maxBytes / treeBytes);
+		this.reversed = ShortestPaths.reverse(graph);
+		this.trees = new LinkedHashMap<Integer, Tree>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Tree> eldest) {
+				if (this.size() > GoalTreeCache.this.maxTrees) {
+					GoalTreeCache.this.evicted++;
+					return true;
+				}
+
+				return false;
+			}
+
+		};
+	}
+
+	/**
+	 * Registers a goal, and starts building its tree if there is room for it.
+	 *
+	 * @param goal
+	 *            The goal node
+	 */
+	public synchronized void register(int goal) {
+		if (goal < 0 || goal >= this.reversed.getNodeCount()) {
+			throw new IndexOutOfBoundsException("goal " + goal + " outside of "
+					+ this.reversed.getNodeCount() + " nodes");
+		}
+
+		if (!this.registered.containsKey(goal)) {
+			this.registered.put(goal, 0L);
+
+			if (this.admits(goal)) {
+				this.schedule(goal);
+			}
+		}
+	}
+
+	/**
+	 * Stops answering queries to a goal and drops its tree.
+	 *
+	 * @param goal
+	 *            The goal node
+	 */
+	public synchronized void unregister(int goal) {
+		this.registered.remove(goal);
+		this.trees.remove(goal);
+	}
+
+	/**
+	 * Replaces the graph after its costs have changed. Every tree is
+	 * discarded, and those that were cached are rebuilt for the new graph.
+	 * Queries return null until their goal's new tree is ready, and builds
+	 * for the old graph still running are thrown away when they finish.
+	 *
+	 * @param graph
+	 *            The graph with its new costs, with the same nodes as before
+	 */
+	public void update(IGraph graph) {
+		// reversing is the slow part, so it is done before taking the lock
+		IGraph reversed = ShortestPaths.reverse(graph);
+
+		synchronized (this) {
+			if (graph.getNodeCount() != this.reversed.getNodeCount()) {
+				throw new IllegalArgumentException("graph has " + graph.getNodeCount()
+						+ " nodes, expected " + this.reversed.getNodeCount());
+			}
+
+			this.reversed = reversed;
+			this.generation++;
+			this.building.clear();
+
+			Integer[] cached = this.trees.keySet().toArray(new Integer[0]);
+			this.trees.clear();
+
+			for (int goal : cached) {
+				this.schedule(goal);
+			}
+		}
+	}
+
+	/**
+	 * Finds a shortest path from a node to a registered goal.
+	 *
+	 * @param start
+	 *            The node the path starts at
+	 * @param goal
+	 *            The goal node
+	 * @return The nodes of the path from start to goal, empty if the goal
+	 *         cannot be reached, or null if the goal's tree is not ready
+	 */
+	public int[] getPath(int start, int goal) {
+		Tree tree = this.tree(goal);
+
+		if (tree == null) {
+			return null;
+		}
+
+		if (tree.distances[start] == Double.POSITIVE_INFINITY) {
+			return new int[0];
+		}
+
+		int length = 1;
+		for (int node = start; node != goal; node = tree.next[node]) {
+			length++;
+		}
+
+		int[] path = new int[length];
+		int node = start;
+
+		for (int i = 0; i < length; i++) {
+			path[i] = node;
+			node = tree.next[node];
+		}
+
+		return path;
+	}
+
+	/**
+	 * Finds the cost of a shortest path from a node to a registered goal.
+	 *
+	 * @param start
+	 *            The node the path starts at
+	 * @param goal
+	 *            The goal node
+	 * @return The cost, infinity if the goal cannot be reached, or NaN if the
+	 *         goal's tree is not ready
+	 */
+	public double getDistance(int start, int goal) {
+		Tree tree = this.tree(goal);
+		return tree == null ? Double.NaN : tree.distances[start];
+	}
+
+	/**
+	 * @param goal
+	 *            The goal node
+	 * @return Whether queries to the goal can be answered now
+	 */
+	public synchronized boolean isReady(int goal) {
+		return this.trees.containsKey(goal);
+	}
+
+	/**
+	 * @return The number of trees cached
+	 */
+	public synchronized int size() {
+		return this.trees.size();
+	}
+
+	/**
+	 * @return The number of trees that fit in the memory given
+	 */
+	public int getMaxTrees() {
+		return this.maxTrees;
+	}
+
+	/**
+	 * @return The number of trees built and cached so far
+	 */
+	public synchronized long getBuilt() {
+		return this.built;
+	}
+
+	/**
+	 * @return The number of trees dropped to make room for others
+	 */
+	public synchronized long getEvicted() {
+		return this.evicted;
+	}
+
+	// the goal's tree if it is ready, scheduling it to be built if it is
+	// missing and worth a place in the cache
+	private synchronized Tree tree(int goal) {
+		Tree tree = this.trees.get(goal);
+		Long count = this.registered.get(goal);
+
+		if (count == null) {
+			return tree;
+		}
+
+		// decided before this query is counted, so of goals queried in turn
+		// the missing one only ties with the one it would replace
+		if (tree == null && this.admits(goal)) {
+			this.schedule(goal);
+		}
+
+		this.registered.put(goal, count + 1);
+
+		if (++this.queries >= (long) AGING * this.registered.size()) {
+			this.queries = 0;
+			this.registered.replaceAll((key, value) -> value / 2);
+		}
+
+		return tree;
+	}
+
+	// must hold the lock; whether there is room for the goal's tree, or it
+	// has been queried more often than the least recently queried cached goal
+	private boolean admits(int goal) {
+		if (this.trees.size() < this.maxTrees || this.trees.containsKey(goal)) {
+			return true;
+		}
+
+		Integer eldest = this.trees.keySet().iterator().next();
+		return this.registered.get(goal) > this.registered.getOrDefault(eldest, 0L);
+	}
+
+	// must hold the lock
+	private void schedule(int goal) {
+		if (!this.building.add(goal)) {
+			return;
+		}
+
+		IGraph reversed = this.reversed;
+		long generation = this.generation;
+
+		try {
+			this.executor.execute(() -> this.build(reversed, generation, goal));
+		} catch (RuntimeException e) {
+			this.building.remove(goal);
+			throw e;
+		}
+	}
+
+	private void build(IGraph reversed, long generation, int goal) {
+		try {
+			int nodes = reversed.getNodeCount();
+			double[] distances = new double[nodes];
+			int[] next = new int[nodes];
+
+			// the parent of a node in a tree grown over the reversed graph is
+			// the next node on its way to the goal in the original
+			ShortestPaths.run(reversed, goal, distances, next);
+
+			synchronized (this) {
+				// other builds may have filled the cache meanwhile
+				if (generation == this.generation && this.registered.containsKey(goal)
+						&& this.admits(goal)) {
+					this.trees.put(goal, new Tree(distances, next));
+					this.built++;
+				}
+			}
+		} finally {
+			// a failed build must not keep the goal from being built again;
+			// after an update the goal may be building for the new graph
+			synchronized (this) {
+				if (generation == this.generation) {
+					this.building.remove(goal);
+				}
+			}
+		}
+	}
+
+	// the distance from each node to one goal, and the next node on the way
+	private static final class Tree {
+
+		private final double[] distances;
+		private final int[] next;
+
+		Tree(double[] distances, int[] next) {
+			this.distances = distances;
+			this.next = next;
+		}
+
+	}
+
+}
@@ -0,0 +1,86 @@
+package astar.graph;
+
+import java.util.Arrays;
+
+/**
+ *
+ * Collects edges in any order and packs them into a {@link DoubleCostGraph}.
+ * Edges leaving the same node keep the order in which they were added.
+ */
+public class GraphBuilder {
+
+	private final int nodes;
+
+	private int[] sources = new int[64];
+	private int[] targets = new int[64];
+	private double[] costs = new double[64];
+	private int edges;
+
+	/**
+	 * @param nodes
+	 *            The number of nodes in the graph, which are numbered from
+	 *            zero
+	 */
+	public GraphBuilder(int nodes) {
+		this.nodes = nodes;
+	}
+
+	/**
+	 *
+	 * Adds a directed edge.
+	 *
+	 * @param from
+	 *            The node the edge leaves
+	 * @param to
+	 *            The node the edge goes to
+	 * @param cost
+	 *            The cost of traversing the edge, should be non-negative
+	 */
+	public void addEdge(int from, int to, double cost) {
+		if (from < 0 || from >= this.nodes || to < 0 || to >= this.nodes) {
+			throw new IndexOutOfBoundsException("edge " + from + " -> " + to + " outside of "
+					+ this.nodes + " nodes");
+		}
+
+		if (this.edges == this.sources.length) {
+			int length = this.edges * 2;
+			this.sources = Arrays.copyOf(this.sources, length);
+			this.targets = Arrays.copyOf(this.targets, length);
+			this.costs = Arrays.copyOf(this.costs, length);
+		}
+
+		this.sources[this.edges] = from;
+		this.targets[this.edges] = to;
+		this.costs[this.edges] = cost;
+		this.edges++;
+	}
+
+	/**
+	 * @return A graph holding every edge added so far
+	 */
+	public DoubleCostGraph build() {
+		int[] offsets = new int[this.nodes + 1];
+
+		// count the edges of each node, then turn the counts into offsets
+		for (int edge = 0; edge < this.edges; edge++) {
+			offsets[this.sources[edge] + 1]++;
+		}
+
+		for (int node = 0; node < this.nodes; node++) {
+			offsets[node + 1] += offsets[node];
+		}
+
+		int[] next = Arrays.copyOf(offsets, this.nodes);
+		int[] packedTargets = new int[this.edges];
+		double[] packedCosts = new double[this.edges];
+
+		for (int edge = 0; edge < this.edges; edge++) {
+			int index = next[this.sources[edge]]++;
+			packedTargets[index] = this.targets[edge];
+			packedCosts[index] = this.costs[edge];
+		}
+
+		return new DoubleCostGraph(offsets, packedTargets, packedCosts);
+	}
+
+}
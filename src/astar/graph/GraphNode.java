@@ -0,0 +1,81 @@
+package astar.graph;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import astar.Edge;
+import astar.INode;
+
+/**
+ *
+ * Lets {@link astar.AStar} search an {@link IGraph} by standing in for one of
+ * its nodes. Node objects are created as edges are followed, so two of them
+ * are equal whenever they refer to the same node of the same graph.
+ */
+public class GraphNode implements INode<GraphNode> {
+
+	private final IGraph graph;
+	private final int id;
+
+	/**
+	 * @param graph
+	 *            The graph the node belongs to
+	 * @param id
+	 *            The number of the node in the graph
+	 */
+	public GraphNode(IGraph graph, int id) {
+		this.graph = graph;
+		this.id = id;
+	}
+
+	/**
+	 * @return The graph the node belongs to
+	 */
+	public IGraph getGraph() {
+		return this.graph;
+	}
+
+	/**
+	 * @return The number of the node in the graph
+	 */
+	public int getId() {
+		return this.id;
+	}
+
+	@Override
+	public Collection<Edge<GraphNode>> edges() {
+		long first = this.graph.getFirstEdge(this.id);
+		long end = this.graph.getEdgeEnd(this.id);
+
+		List<Edge<GraphNode>> edges = new ArrayList<Edge<GraphNode>>((int) (end - first));
+
+		for (long edge = first; edge < end; edge++) {
+			edges.add(new Edge<GraphNode>(new GraphNode(this.graph, this.graph.getTarget(edge)),
+					this.graph.getCost(edge)));
+		}
+
+		return edges;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.id;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+
+		if (!(obj instanceof GraphNode)) {
+			return false;
+		}
+
+		GraphNode other = (GraphNode) obj;
+
+		return this.id == other.id && this.graph == other.graph;
+	}
+
+}
@@ -0,0 +1,429 @@
+package astar.graph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ *
+ * A built graph saved to a file along with data precomputed from it, so that
+ * a restart can map the file instead of rebuilding everything. Every section
+ * is mapped rather than read, so opening a snapshot takes about as long as
+ * reading its section table, and each section carries a CRC-32 checksum that
+ * can be verified on open.
+ *
+ * <p>
+ * All values are little-endian. The layout is:
+ * </p>
+ *
+ * <pre>
+ * header, 16 bytes
+ *   0  int   magic, 0x50414E53
+ *   4  int   version, 1
+ *   8  int   section count S
+ *   12 int   reserved, 0
+ * section table, S entries of 32 bytes
+ *   0  int   type: 1 graph, 2 heights, 3 components, 4 heuristic table
+ *   4  int   the landmark node of a heuristic table, otherwise 0
+ *   8  long  position of the section in the file
+ *   16 long  length of the section in bytes
+ *   24 long  CRC-32 of the section
+ * sections, each starting on a multiple of 8 bytes
+ *   graph            laid out as described by {@link MappedGraph}
+ *   heights          N doubles, the height of each node
+ *   components       N ints, the component label of each node
+ *   heuristic table  N doubles, the distance from the landmark to each node
+ * </pre>
+ *
+ * <p>
+ * There is exactly one graph section. Readers skip section types they do not
+ * know, so sections can be added without changing the version.
+ * </p>
+ */
+public class GraphSnapshot implements Closeable {
+
+	private static final int MAGIC = 0x50414E53;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 16;
+	private static final int ENTRY_SIZE = 32;
+
+	private static final int GRAPH = 1;
+	private static final int HEIGHTS = 2;
+	private static final int COMPONENTS = 3;
+	private static final int HEURISTIC_TABLE = 4;
+
+	private final FileChannel channel;
+	private final MappedGraph graph;
+	private final MappedRegion heights;
+	private final MappedRegion components;
+	private final List<MappedRegion> tables = new ArrayList<MappedRegion>();
+	private final List<Integer> landmarks = new ArrayList<Integer>();
+
+	private GraphSnapshot(FileChannel channel, boolean verify) throws IOException {
+		this.channel = channel;
+
+		ByteBuffer header = read(channel, 0, HEADER_SIZE);
+
+		if (header.getInt(0) != MAGIC) {
+			throw new IOException("not a graph snapshot");
+		}
+
+		if (header.getInt(4) != VERSION) {
+			throw new IOException("unsupported snapshot version: " + header.getInt(4));
+		}
+
+		int sections = header.getInt(8);
+		ByteBuffer table = read(channel, HEADER_SIZE, (long) sections * ENTRY_SIZE);
+
+		MappedGraph graph = null;
+		MappedRegion heights = null;
+		MappedRegion components = null;
+
+		for (int i = 0; i < sections; i++) {
+
+			int entry = i * ENTRY_SIZE;
+			int type = table.getInt(entry);
+			long position = table.getLong(entry + 8);
+			long length = table.getLong(entry + 16);
+
+			MappedRegion region = new MappedRegion(channel, position, length);
+
+			if (verify && region.checksum() != table.getLong(entry + 24)) {
+				throw new IOException("snapshot section " + i + " is corrupt");
+			}
+
+			switch (type) {
+
+			case GRAPH:
+				graph = MappedGraph.open(channel, position);
+				break;
+
+			case HEIGHTS:
+				heights = region;
+				break;
+
+			case COMPONENTS:
+				components = region;
+				break;
+
+			case HEURISTIC_TABLE:
+				this.tables.add(region);
+				this.landmarks.add(table.getInt(entry + 4));
+				break;
+
+			default:
+				break;
+
+			}
+
+		}
+
+		if (graph == null) {
+			throw new IOException("snapshot has no graph");
+		}
+
+		this.graph = graph;
+		this.heights = heights;
+		this.components = components;
+	}
+
+	/**
+	 *
+	 * Maps a snapshot file.
+	 *
+	 * @param file
+	 *            The snapshot to map
+	 * @param verify
+	 *            Whether to check every section against its checksum, which
+	 *            reads the whole file
+	 * @return The mapped snapshot
+	 * @throws IOException
+	 *             If the file cannot be read, is not a snapshot, or fails
+	 *             verification
+	 */
+	public static GraphSnapshot open(Path file, boolean verify) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+
+		try {
+			return new GraphSnapshot(channel, verify);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, long length)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("snapshot is truncated");
+			}
+		}
+
+		return buffer;
+	}
+
+	/**
+	 * @return The saved graph
+	 */
+	public MappedGraph getGraph() {
+		return this.graph;
+	}
+
+	/**
+	 * @return Whether the snapshot holds the height of each node
+	 */
+	public boolean hasHeights() {
+		return this.heights != null;
+	}
+
+	/**
+	 * @param node
+	 *            A node number
+	 * @return The height of the node
+	 */
+	public double getHeight(int node) {
+		return this.heights.getDouble(8L * node);
+	}
+
+	/**
+	 * @return Whether the snapshot holds the component label of each node
+	 */
+	public boolean hasComponents() {
+		return this.components != null;
+	}
+
+	/**
+	 * @param node
+	 *            A node number
+	 * @return The component label of the node, as computed by
+	 *         {@link ShortestPaths#components(IGraph)}
+	 */
+	public int getComponent(int node) {
+		return this.components.getInt(4L * node);
+	}
+
+	/**
+	 * @return The number of heuristic tables
+	 */
+	public int getHeuristicTableCount() {
+		return this.tables.size();
+	}
+
+	/**
+	 * @param table
+	 *            The index of a heuristic table
+	 * @return The landmark node the table measures distances from
+	 */
+	public int getLandmark(int table) {
+		return this.landmarks.get(table);
+	}
+
+	/**
+	 * @param table
+	 *            The index of a heuristic table
+	 * @param node
+	 *            A node number
+	 * @return The distance from the table's landmark to the node
+	 */
+	public double getLandmarkDistance(int table, int node) {
+		return this.tables.get(table).getDouble(8L * node);
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+	/**
+	 * Collects a graph and its precomputed data and writes them as a
+	 * snapshot.
+	 */
+	public static class Writer {
+
+		private final IGraph graph;
+		private boolean doubleCosts;
+		private IntUnaryOperator x;
+		private IntUnaryOperator y;
+		private double[] heights;
+		private int[] components;
+		private final List<double[]> tables = new ArrayList<double[]>();
+		private final List<Integer> landmarks = new ArrayList<Integer>();
+
+		/**
+		 * @param graph
+		 *            The graph to save
+		 */
+		public Writer(IGraph graph) {
+			this.graph = graph;
+		}
+
+		/**
+		 * @param doubleCosts
+		 *            Whether to store costs as doubles rather than floats
+		 * @return This writer
+		 */
+		public Writer setDoubleCosts(boolean doubleCosts) {
+			this.doubleCosts = doubleCosts;
+			return this;
+		}
+
+		/**
+		 * @param x
+		 *            Gives the x coordinate of each node
+		 * @param y
+		 *            Gives the y coordinate of each node
+		 * @return This writer
+		 */
+		public Writer setCoordinates(IntUnaryOperator x, IntUnaryOperator y) {
+			this.x = x;
+			this.y = y;
+			return this;
+		}
+
+		/**
+		 * @param heights
+		 *            The height of each node
+		 * @return This writer
+		 */
+		public Writer setHeights(double[] heights) {
+			this.heights = heights;
+			return this;
+		}
+
+		/**
+		 * @param components
+		 *            The component label of each node
+		 * @return This writer
+		 */
+		public Writer setComponents(int[] components) {
+			this.components = components;
+			return this;
+		}
+
+		/**
+		 * @param landmark
+		 *            The node the distances are measured from
+		 * @param distances
+		 *            The distance from the landmark to each node
+		 * @return This writer
+		 */
+		public Writer addHeuristicTable(int landmark, double[] distances) {
+			this.landmarks.add(landmark);
+			this.tables.add(distances);
+			return this;
+		}
+
+		/**
+		 *
+		 * Writes the snapshot.
+		 *
+		 * @param file
+		 *            The file to create or replace
+		 * @throws IOException
+		 *             If the file cannot be written
+		 */
+		public void write(Path file) throws IOException {
+			int sections = 1 + (this.heights != null ? 1 : 0) + (this.components != null ? 1 : 0)
+					+ this.tables.size();
+
+			int[] types = new int[sections];
+			int[] arguments = new int[sections];
+			long[] positions = new long[sections];
+			long[] lengths = new long[sections];
+
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+					StandardOpenOption.WRITE)) {
+
+				ChannelWriter writer = new ChannelWriter(channel);
+
+				// the section table is filled in once the checksums are known
+				writer.put(new byte[HEADER_SIZE + sections * ENTRY_SIZE]);
+				writer.align(8);
+
+				int section = 0;
+
+				types[section] = GRAPH;
+				positions[section] = writer.position();
+				MappedGraph.write(this.graph, this.doubleCosts, this.x, this.y, writer);
+				lengths[section] = writer.position() - positions[section];
+				section++;
+
+				if (this.heights != null) {
+					types[section] = HEIGHTS;
+					positions[section] = writer.position();
+
+					for (double height : this.heights) {
+						writer.putDouble(height);
+					}
+
+					lengths[section] = writer.position() - positions[section];
+					section++;
+				}
+
+				if (this.components != null) {
+					types[section] = COMPONENTS;
+					positions[section] = writer.position();
+
+					for (int component : this.components) {
+						writer.putInt(component);
+					}
+
+					lengths[section] = writer.position() - positions[section];
+					writer.align(8);
+					section++;
+				}
+
+				for (int i = 0; i < this.tables.size(); i++) {
+					types[section] = HEURISTIC_TABLE;
+					arguments[section] = this.landmarks.get(i);
+					positions[section] = writer.position();
+
+					for (double distance : this.tables.get(i)) {
+						writer.putDouble(distance);
+					}
+
+					lengths[section] = writer.position() - positions[section];
+					section++;
+				}
+
+				writer.flush();
+
+				ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + sections * ENTRY_SIZE)
+						.order(ByteOrder.LITTLE_ENDIAN);
+
+				header.putInt(MAGIC);
+				header.putInt(VERSION);
+				header.putInt(sections);
+				header.putInt(0);
+
+				for (int i = 0; i < sections; i++) {
+					header.putInt(types[i]);
+					header.putInt(arguments[i]);
+					header.putLong(positions[i]);
+					header.putLong(lengths[i]);
+					header.putLong(new MappedRegion(channel, positions[i], lengths[i]).checksum());
+				}
+
+				header.flip();
+
+				while (header.hasRemaining()) {
+					channel.write(header, header.position());
+				}
+
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,55 @@
+package astar.graph;
+
+/**
+ *
+ * A directed graph whose nodes are numbered densely from zero, stored in
+ * compressed sparse row form. The outgoing edges of a node are numbered
+ * consecutively, from {@link #getFirstEdge(int)} up to but not including
+ * {@link #getEdgeEnd(int)}.
+ *
+ * <p>
+ * Edge numbers are longs so that graphs with more than two billion edges can
+ * be addressed.
+ * </p>
+ */
+public interface IGraph {
+
+	/**
+	 * @return The number of nodes, which are numbered from zero
+	 */
+	int getNodeCount();
+
+	/**
+	 * @return The total number of edges
+	 */
+	long getEdgeCount();
+
+	/**
+	 * @param node
+	 *            A node number
+	 * @return The number of the first edge leaving the node
+	 */
+	long getFirstEdge(int node);
+
+	/**
+	 * @param node
+	 *            A node number
+	 * @return One past the number of the last edge leaving the node
+	 */
+	long getEdgeEnd(int node);
+
+	/**
+	 * @param edge
+	 *            An edge number
+	 * @return The node the edge goes to
+	 */
+	int getTarget(long edge);
+
+	/**
+	 * @param edge
+	 *            An edge number
+	 * @return The cost of traversing the edge
+	 */
+	double getCost(long edge);
+
+}
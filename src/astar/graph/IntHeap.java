@@ -0,0 +1,163 @@
+package astar.graph;
+
+import java.util.Arrays;
+
+/**
+ *
+ * A binary min-heap of node numbers keyed by cost, for searches over an
+ * {@link IGraph}. The position of every node is kept in an array indexed by
+ * node, so a node's cost can be decreased in place and the heap can be
+ * cleared in time proportional to the nodes still in it.
+ */
+public class IntHeap {
+
+	private final int[] positions;
+	private int[] heap = new int[64];
+	private double[] costs = new double[64];
+	private int size;
+
+	/**
+	 * @param nodes
+	 *            The number of nodes that may be added, numbered from zero
+	 */
+	public IntHeap(int nodes) {
+		this.positions = new int[nodes];
+		Arrays.fill(this.positions, -1);
+	}
+
+	/**
+	 *
+	 * Adds a node, or lowers its cost if it is already in the heap and the
+	 * new cost is lower.
+	 *
+	 * @param node
+	 *            The node to add
+	 * @param cost
+	 *            The cost to order the node by
+	 */
+	public void add(int node, double cost) {
+		int index = this.positions[node];
+
+		if (index >= 0) {
+			if (cost < this.costs[index]) {
+				this.siftUp(index, node, cost);
+			}
+
+			return;
+		}
+
+		if (this.size == this.heap.length) {
+			this.heap = Arrays.copyOf(this.heap, this.size * 2);
+			this.costs = Arrays.copyOf(this.costs, this.size * 2);
+		}
+
+		this.siftUp(this.size++, node, cost);
+	}
+
+	/**
+	 * @return The cost of the node {@link #poll()} would return
+	 */
+	public double peekCost() {
+		return this.costs[0];
+	}
+
+	/**
+	 * Removes the node with the lowest cost.
+	 *
+	 * @return The removed node
+	 */
+	public int poll() {
+		int first = this.heap[0];
+		int last = this.heap[--this.size];
+
+		this.positions[first] = -1;
+
+		if (this.size > 0) {
+			this.siftDown(0, last, this.costs[this.size]);
+		}
+
+		return first;
+	}
+
+	/**
+	 * @param node
+	 *            A node number
+	 * @return Whether the node is in the heap
+	 */
+	public boolean contains(int node) {
+		return this.positions[node] >= 0;
+	}
+
+	/**
+	 * @return The number of nodes in the heap
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @return Whether the heap is empty
+	 */
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	/**
+	 * Removes every node from the heap.
+	 */
+	public void clear() {
+		for (int i = 0; i < this.size; i++) {
+			this.positions[this.heap[i]] = -1;
+		}
+
+		this.size = 0;
+	}
+
+	private void siftUp(int index, int node, double cost) {
+		while (index > 0) {
+
+			int parentIndex = (index - 1) >>> 1;
+
+			if (this.costs[parentIndex] <= cost) {
+				break;
+			}
+
+			this.set(index, this.heap[parentIndex], this.costs[parentIndex]);
+			index = parentIndex;
+
+		}
+
+		this.set(index, node, cost);
+	}
+
+	private void siftDown(int index, int node, double cost) {
+		int half = this.size >>> 1;
+
+		while (index < half) {
+
+			int childIndex = 2 * index + 1;
+			int rightIndex = childIndex + 1;
+
+			if (rightIndex < this.size && this.costs[rightIndex] < this.costs[childIndex]) {
+				childIndex = rightIndex;
+			}
+
+			if (cost <= this.costs[childIndex]) {
+				break;
+			}
+
+			this.set(index, this.heap[childIndex], this.costs[childIndex]);
+			index = childIndex;
+
+		}
+
+		this.set(index, node, cost);
+	}
+
+	private void set(int index, int node, double cost) {
+		this.heap[index] = node;
+		this.costs[index] = cost;
+		this.positions[node] = index;
+	}
+
+}
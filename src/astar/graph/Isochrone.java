@@ -0,0 +1,184 @@
+package astar.graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ *
+ * Finds every node that can be reached from a source within a cost budget,
+ * with Dijkstra's Algorithm cut off at the budget. Nodes beyond the budget
+ * are never added to the heap, so the work done grows with the area reached
+ * rather than with the graph.
+ *
+ * <p>
+ * The reached nodes are kept as a bitset indexed by node number, alongside a
+ * distance array and a list of the nodes in the order they were reached. All
+ * of these, and the heap, are allocated once and reused by every run, which
+ * only clears the entries the last run set. Results are views that change
+ * with the next run, and an instance must not be shared between threads.
+ * </p>
+ */
+public class Isochrone {
+
+	private final IGraph graph;
+	private final IntHeap heap;
+	private final double[] distances;
+	private final long[] bits;
+	private final int[] reached;
+	private int size;
+
+	/**
+	 * @param graph
+	 *            The graph to search
+	 */
+	public Isochrone(IGraph graph) {
+		int nodes = graph.getNodeCount();
+
+		this.graph = graph;
+		this.heap = new IntHeap(nodes);
+		this.distances = new double[nodes];
+		this.bits = new long[(nodes + 63) >>> 6];
+		this.reached = new int[nodes];
+
+		Arrays.fill(this.distances, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 *
+	 * Finds the nodes that can be reached from a source at a cost of at most
+	 * the budget, replacing the results of the last run.
+	 *
+	 * @param source
+	 *            The node to start from
+	 * @param budget
+	 *            The greatest cost to spend
+	 * @return The number of nodes reached, including the source
+	 */
+	public int run(int source, double budget) {
+		this.clear();
+
+		IGraph graph = this.graph;
+		IntHeap heap = this.heap;
+		double[] distances = this.distances;
+
+		if (budget < 0) {
+			return 0;
+		}
+
+		this.reach(source, 0);
+		heap.add(source, 0);
+
+		while (!heap.isEmpty()) {
+
+			int node = heap.poll();
+			double distance = distances[node];
+
+			for (long edge = graph.getFirstEdge(node); edge < graph.getEdgeEnd(node); edge++) {
+
+				int target = graph.getTarget(edge);
+				double through = distance + graph.getCost(edge);
+
+				if (through <= budget && through < distances[target]) {
+					if (distances[target] == Double.POSITIVE_INFINITY) {
+						this.reach(target, through);
+					} else {
+						distances[target] = through;
+					}
+
+					heap.add(target, through);
+				}
+
+			}
+
+		}
+
+		return this.size;
+	}
+
+	// every node given a distance is within budget, so it is marked reached
+	// as soon as it is first seen
+	private void reach(int node, double distance) {
+		this.distances[node] = distance;
+		this.bits[node >>> 6] |= 1L << node;
+		this.reached[this.size++] = node;
+	}
+
+	private void clear() {
+		for (int i = 0; i < this.size; i++) {
+			int node = this.reached[i];
+			this.distances[node] = Double.POSITIVE_INFINITY;
+			this.bits[node >>> 6] = 0;
+		}
+
+		this.size = 0;
+	}
+
+	/**
+	 * @return The number of nodes reached by the last run
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	/**
+	 * @param index
+	 *            An index from zero up to {@link #size()}
+	 * @return The index-th node reached by the last run, in the order they
+	 *         were first seen
+	 */
+	public int getNode(int index) {
+		if (index >= this.size) {
+			throw new IndexOutOfBoundsException("node " + index + " of " + this.size);
+		}
+
+		return this.reached[index];
+	}
+
+	/**
+	 * @param node
+	 *            A node number
+	 * @return Whether the last run reached the node
+	 */
+	public boolean contains(int node) {
+		return (this.bits[node >>> 6] & 1L << node) != 0;
+	}
+
+	/**
+	 * @param node
+	 *            A node number
+	 * @return The cost of reaching the node in the last run, or infinity if it
+	 *         is beyond the budget
+	 */
+	public double getDistance(int node) {
+		return this.distances[node];
+	}
+
+	/**
+	 * Gets the nodes reached by the last run as a bitset, with bit n of word
+	 * n / 64 set if node n was reached. The array is the one used internally
+	 * and changes with the next run.
+	 *
+	 * @return The words of the bitset
+	 */
+	public long[] getBits() {
+		return this.bits;
+	}
+
+	/**
+	 * @return A copy of the nodes reached by the last run
+	 */
+	public BitSet toBitSet() {
+		return BitSet.valueOf(this.bits);
+	}
+
+	/**
+	 * Gets the cost of reaching each node in the last run, indexed by node.
+	 * The array is the one used internally and changes with the next run.
+	 *
+	 * @return The distances, infinity for nodes beyond the budget
+	 */
+	public double[] getDistances() {
+		return this.distances;
+	}
+
+}
@@ -0,0 +1,91 @@
+package astar.graph;
+
+import astar.ICostHeuristic;
+
+/**
+ *
+ * Estimates costs from precomputed distances to a few landmark nodes, using
+ * the triangle inequality: a path from a node to a goal cannot be shorter than
+ * the difference in their distances from any landmark. The estimate never
+ * exceeds the true cost on graphs whose edges cost the same in both
+ * directions.
+ *
+ * <p>
+ * Distance tables can be computed with
+ * {@link ShortestPaths#distancesFrom(IGraph, int)} and stored in a
+ * {@link GraphSnapshot}.
+ * </p>
+ */
+public class LandmarkHeuristic implements ICostHeuristic<GraphNode> {
+
+	/**
+	 * Gives the distance from each landmark to each node.
+	 */
+	public interface IDistances {
+
+		/**
+		 * @param landmark
+		 *            The index of a landmark
+		 * @param node
+		 *            A node number
+		 * @return The distance from the landmark to the node
+		 */
+		double get(int landmark, int node);
+
+	}
+
+	private final int landmarks;
+	private final IDistances distances;
+
+	/**
+	 * @param landmarks
+	 *            The number of landmarks
+	 * @param distances
+	 *            The distance from each landmark to each node
+	 */
+	public LandmarkHeuristic(int landmarks, IDistances distances) {
+		this.landmarks = landmarks;
+		this.distances = distances;
+	}
+
+	/**
+	 * @param tables
+	 *            The distance from each landmark to each node, indexed by
+	 *            landmark then node
+	 */
+	public LandmarkHeuristic(double[][] tables) {
+		this(tables.length, (landmark, node) -> tables[landmark][node]);
+	}
+
+	/**
+	 * @param snapshot
+	 *            A snapshot holding the distance tables to use
+	 */
+	public LandmarkHeuristic(GraphSnapshot snapshot) {
+		this(snapshot.getHeuristicTableCount(), snapshot::getLandmarkDistance);
+	}
+
+	@Override
+	public double approxCost(GraphNode node, GraphNode goal) {
+		if (goal == null) {
+			return 0;
+		}
+
+		double best = 0;
+
+		for (int landmark = 0; landmark < this.landmarks; landmark++) {
+
+			double toNode = this.distances.get(landmark, node.getId());
+			double toGoal = this.distances.get(landmark, goal.getId());
+
+			// an unreachable landmark says nothing about either node
+			if (toNode != Double.POSITIVE_INFINITY && toGoal != Double.POSITIVE_INFINITY) {
+				best = Math.max(best, Math.abs(toGoal - toNode));
+			}
+
+		}
+
+		return best;
+	}
+
+}
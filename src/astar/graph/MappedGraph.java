@@ -0,0 +1,307 @@
+package astar.graph;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntUnaryOperator;
+
+/**
+ *
+ * An {@link IGraph} read straight from a memory-mapped file, for graphs too
+ * large to hold on the heap. Opening a graph only reads its header; offsets,
+ * targets and costs are paged in by the operating system as a search first
+ * touches them. To search it with {@link astar.AStar}, wrap its nodes in
+ * {@link GraphNode}s.
+ *
+ * <p>
+ * All values are little-endian. The layout, where positions are relative to
+ * the start of the graph and every section starts on a multiple of 8 bytes,
+ * is:
+ * </p>
+ *
+ * <pre>
+ * header, 64 bytes
+ *   0  int   magic, 0x48505247
+ *   4  int   version, 1
+ *   8  int   flags, 1 if costs are doubles rather than floats,
+ *            plus 2 if there are coordinates
+ *   12 int   reserved, 0
+ *   16 long  node count N
+ *   24 long  edge count M
+ *   32 long  position of offsets
+ *   40 long  position of targets
+ *   48 long  position of costs
+ *   56 long  position of coordinates, 0 if there are none
+ * offsets      N + 1 longs, the first edge of each node then M
+ * targets      M ints, the node each edge goes to
+ * costs        M floats or doubles, the cost of each edge
+ * coordinates  N pairs of ints, the x and y of each node
+ * </pre>
+ */
+public class MappedGraph implements IGraph, Closeable {
+
+	static final int MAGIC = 0x48505247;
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 64;
+
+	private static final int DOUBLE_COSTS = 1;
+	private static final int HAS_COORDINATES = 2;
+
+	private final FileChannel channel;
+	private final int nodes;
+	private final long edges;
+	private final MappedRegion offsets;
+	private final MappedRegion targets;
+	private final MappedRegion costs;
+	private final MappedRegion coordinates;
+	private final boolean doubleCosts;
+
+	private MappedGraph(FileChannel channel, long base) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+		while (header.hasRemaining()) {
+			if (channel.read(header, base + header.position()) < 0) {
+				throw new IOException("graph header is truncated");
+			}
+		}
+
+		if (header.getInt(0) != MAGIC) {
+			throw new IOException("not a mapped graph");
+		}
+
+		if (header.getInt(4) != VERSION) {
+			throw new IOException("unsupported mapped graph version: " + header.getInt(4));
+		}
+
+		int flags = header.getInt(8);
+		long nodeCount = header.getLong(16);
+
+		if (nodeCount > Integer.MAX_VALUE) {
+			throw new IOException("too many nodes: " + nodeCount);
+		}
+
+		this.channel = channel;
+		this.nodes = (int) nodeCount;
+		this.edges = header.getLong(24);
+		this.doubleCosts = (flags & DOUBLE_COSTS) != 0;
+
+		this.offsets = new MappedRegion(channel, base + header.getLong(32), 8L * (this.nodes + 1));
+		this.targets = new MappedRegion(channel, base + header.getLong(40), 4L * this.edges);
+		this.costs = new MappedRegion(channel, base + header.getLong(48),
+				(this.doubleCosts ? 8L : 4L) * this.edges);
+		this.coordinates = (flags & HAS_COORDINATES) == 0 ? null
+				: new MappedRegion(channel, base + header.getLong(56), 8L * this.nodes);
+	}
+
+	/**
+	 *
+	 * Maps a graph file written by {@link #write(IGraph, Path)}.
+	 *
+	 * @param file
+	 *            The file to map
+	 * @return The mapped graph
+	 * @throws IOException
+	 *             If the file cannot be read or is not a mapped graph
+	 */
+	public static MappedGraph open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+
+		try {
+			return new MappedGraph(channel, 0);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 *
+	 * Maps a graph that starts partway through a file, such as a section of a
+	 * larger file. The channel is closed along with the graph.
+	 *
+	 * @param channel
+	 *            The open file holding the graph
+	 * @param base
+	 *            The position in the file where the graph's header starts
+	 * @return The mapped graph
+	 * @throws IOException
+	 *             If the file cannot be read or holds no graph at the position
+	 */
+	public static MappedGraph open(FileChannel channel, long base) throws IOException {
+		return new MappedGraph(channel, base);
+	}
+
+	/**
+	 *
+	 * Writes a graph with float costs and no coordinates.
+	 *
+	 * @param graph
+	 *            The graph to write
+	 * @param file
+	 *            The file to create or replace
+	 * @throws IOException
+	 *             If the file cannot be written
+	 */
+	public static void write(IGraph graph, Path file) throws IOException {
+		write(graph, false, null, null, file);
+	}
+
+	/**
+	 *
+	 * Writes a graph.
+	 *
+	 * @param graph
+	 *            The graph to write
+	 * @param doubleCosts
+	 *            Whether to store costs as doubles rather than floats
+	 * @param x
+	 *            Gives the x coordinate of each node, or null to store no
+	 *            coordinates
+	 * @param y
+	 *            Gives the y coordinate of each node, or null to store no
+	 *            coordinates
+	 * @param file
+	 *            The file to create or replace
+	 * @throws IOException
+	 *             If the file cannot be written
+	 */
+	public static void write(IGraph graph, boolean doubleCosts, IntUnaryOperator x,
+			IntUnaryOperator y, Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+			ChannelWriter writer = new ChannelWriter(channel);
+			write(graph, doubleCosts, x, y, writer);
+			writer.flush();
+
+		}
+	}
+
+	// writes the graph at the writer's position, which must be a multiple of
+	// 8, with positions in the header relative to it
+	static void write(IGraph graph, boolean doubleCosts, IntUnaryOperator x, IntUnaryOperator y,
+			ChannelWriter writer) throws IOException {
+		int nodes = graph.getNodeCount();
+		long edges = graph.getEdgeCount();
+		boolean hasCoordinates = x != null && y != null;
+
+		long offsetsPosition = HEADER_SIZE;
+		long targetsPosition = offsetsPosition + 8L * (nodes + 1);
+		long costsPosition = align(targetsPosition + 4L * edges);
+		long coordinatesPosition =
+				hasCoordinates ? align(costsPosition + (doubleCosts ? 8L : 4L) * edges) : 0;
+
+		writer.putInt(MAGIC);
+		writer.putInt(VERSION);
+		writer.putInt((doubleCosts ? DOUBLE_COSTS : 0) | (hasCoordinates ? HAS_COORDINATES : 0));
+		writer.putInt(0);
+		writer.putLong(nodes);
+		writer.putLong(edges);
+		writer.putLong(offsetsPosition);
+		writer.putLong(targetsPosition);
+		writer.putLong(costsPosition);
+		writer.putLong(coordinatesPosition);
+
+		for (int node = 0; node < nodes; node++) {
+			writer.putLong(graph.getFirstEdge(node));
+		}
+
+		writer.putLong(edges);
+
+		for (long edge = 0; edge < edges; edge++) {
+			writer.putInt(graph.getTarget(edge));
+		}
+
+		writer.align(8);
+
+		for (long edge = 0; edge < edges; edge++) {
+			if (doubleCosts) {
+				writer.putDouble(graph.getCost(edge));
+			} else {
+				writer.putFloat((float) graph.getCost(edge));
+			}
+		}
+
+		writer.align(8);
+
+		if (hasCoordinates) {
+			for (int node = 0; node < nodes; node++) {
+				writer.putInt(x.applyAsInt(node));
+				writer.putInt(y.applyAsInt(node));
+			}
+		}
+	}
+
+	private static long align(long position) {
+		return (position + 7) & ~7L;
+	}
+
+	@Override
+	public int getNodeCount() {
+		return this.nodes;
+	}
+
+	@Override
+	public long getEdgeCount() {
+		return this.edges;
+	}
+
+	@Override
+	public long getFirstEdge(int node) {
+		return this.offsets.getLong(8L * node);
+	}
+
+	@Override
+	public long getEdgeEnd(int node) {
+		return this.offsets.getLong(8L * node + 8);
+	}
+
+	@Override
+	public int getTarget(long edge) {
+		return this.targets.getInt(4L * edge);
+	}
+
+	@Override
+	public double getCost(long edge) {
+		return this.doubleCosts ? this.costs.getDouble(8L * edge) : this.costs.getFloat(4L * edge);
+	}
+
+	/**
+	 * @return Whether the file stores the coordinates of each node
+	 */
+	public boolean hasCoordinates() {
+		return this.coordinates != null;
+	}
+
+	/**
+	 * @param node
+	 *            A node number
+	 * @return The x coordinate of the node
+	 */
+	public int getX(int node) {
+		return this.coordinates.getInt(8L * node);
+	}
+
+	/**
+	 * @param node
+	 *            A node number
+	 * @return The y coordinate of the node
+	 */
+	public int getY(int node) {
+		return this.coordinates.getInt(8L * node + 4);
+	}
+
+	/**
+	 * Closes the file. The mapping itself is released once the graph is
+	 * garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+}
@@ -0,0 +1,128 @@
+package astar.graph;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ *
+ * A read-only view of a range of a file, mapped into memory in chunks of at
+ * most 1 GiB so that ranges larger than a single {@link MappedByteBuffer} can
+ * be read. Values are little-endian and are read by their byte position from
+ * the start of the range.
+ *
+ * <p>
+ * Nothing is read when a region is mapped; the operating system pages the
+ * file in as it is first touched and may drop pages again under memory
+ * pressure, so mapped data never counts against the Java heap.
+ * </p>
+ *
+ * <p>
+ * Values must not straddle two chunks, which holds as long as each value
+ * sits at a position that is a multiple of its size.
+ * </p>
+ */
+public class MappedRegion {
+
+	private static final int CHUNK_BITS = 30;
+	private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+	private final MappedByteBuffer[] chunks;
+	private final long size;
+
+	/**
+	 * @param channel
+	 *            The open file to map
+	 * @param position
+	 *            The position in the file where the range starts
+	 * @param size
+	 *            The number of bytes in the range
+	 * @throws IOException
+	 *             If the file cannot be mapped
+	 */
+	public MappedRegion(FileChannel channel, long position, long size) throws IOException {
+		this.size = size;
+		this.chunks = new MappedByteBuffer[(int) ((size + CHUNK_MASK) >>> CHUNK_BITS)];
+
+		for (int i = 0; i < this.chunks.length; i++) {
+
+			long start = (long) i << CHUNK_BITS;
+			long length = Math.min(CHUNK_MASK + 1, size - start);
+
+			this.chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position + start, length);
+			this.chunks[i].order(ByteOrder.LITTLE_ENDIAN);
+
+		}
+	}
+
+	/**
+	 * @return The number of bytes in the range
+	 */
+	public long size() {
+		return this.size;
+	}
+
+	/**
+	 * @param position
+	 *            Byte position from the start of the range
+	 * @return The byte at the position
+	 */
+	public byte getByte(long position) {
+		return this.chunks[(int) (position >>> CHUNK_BITS)].get((int) (position & CHUNK_MASK));
+	}
+
+	/**
+	 * @param position
+	 *            Byte position from the start of the range
+	 * @return The int at the position
+	 */
+	public int getInt(long position) {
+		return this.chunks[(int) (position >>> CHUNK_BITS)].getInt((int) (position & CHUNK_MASK));
+	}
+
+	/**
+	 * @param position
+	 *            Byte position from the start of the range
+	 * @return The long at the position
+	 */
+	public long getLong(long position) {
+		return this.chunks[(int) (position >>> CHUNK_BITS)]
+				.getLong((int) (position & CHUNK_MASK));
+	}
+
+	/**
+	 * @param position
+	 *            Byte position from the start of the range
+	 * @return The float at the position
+	 */
+	public float getFloat(long position) {
+		return this.chunks[(int) (position >>> CHUNK_BITS)]
+				.getFloat((int) (position & CHUNK_MASK));
+	}
+
+	/**
+	 * @param position
+	 *            Byte position from the start of the range
+	 * @return The double at the position
+	 */
+	public double getDouble(long position) {
+		return this.chunks[(int) (position >>> CHUNK_BITS)]
+				.getDouble((int) (position & CHUNK_MASK));
+	}
+
+	/**
+	 * @return The CRC-32 checksum of every byte in the range
+	 */
+	public long checksum() {
+		CRC32 crc = new CRC32();
+
+		for (MappedByteBuffer chunk : this.chunks) {
+			crc.update(chunk.duplicate());
+		}
+
+		return crc.getValue();
+	}
+
+}
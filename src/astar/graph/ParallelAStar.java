@@ -0,0 +1,659 @@
+package astar.graph;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import astar.ICostHeuristic;
+
+/**
+ *
+ * Runs one A* search on several threads at once, in the manner of
+ * hash-distributed A* (HDA*). Every node is owned by one worker, chosen by a
+ * Zobrist hash of its number. Each worker keeps its own open list of the
+ * nodes it owns and only ever writes the cost and parent of those nodes.
+ * When a worker expands a node, the neighbours it finds are sent to their
+ * owners, in batches, through lock-free queues that any thread can push to
+ * and only the owner drains.
+ *
+ * <p>
+ * Since the workers do not expand nodes in one global order, a node may be
+ * reached again more cheaply after it was expanded, and is then expanded
+ * again. The cheapest path found to the goal so far is shared by all
+ * workers, and nodes that cannot beat it are dropped. The search is over
+ * once every worker has nothing left that could beat it and no batches are
+ * in flight, which is tracked in one packed atomic counter. If the heuristic
+ * never overestimates, the path found is then a shortest path. A worker with
+ * nothing to do spins briefly and then parks until a batch is pushed to it or
+ * the search is over, so idle workers do not take CPU time from busy ones.
+ * </p>
+ *
+ * <p>
+ * The worker threads are started with the first search and kept, parked,
+ * between searches, so a search does not pay for starting threads. They are
+ * daemon threads and are stopped by {@link #close()}. The cost and parent
+ * arrays are allocated once and reused by every search, which only resets
+ * the entries it set. One search may run at a time.
+ * </p>
+ */
+public class ParallelAStar {
+
+	// nodes sent to one worker at a time
+	private static final int BATCH_SIZE = 64;
+
+	// expansions between flushes of partly filled batches
+	private static final int FLUSH_INTERVAL = 32;
+
+	// checks of an empty inbox before an idle worker parks
+	private static final int SPINS = 64;
+
+	// the termination counter holds the number of idle workers above this
+	// bit, and the number of nodes sent but not yet received below it
+	private static final int IDLE_SHIFT = 40;
+
+	private final IGraph graph;
+	private final ICostHeuristic<GraphNode> heuristic;
+	private final int threads;
+	private final int[] zobristLow = new int[1 << 16];
+	private final int[] zobristHigh = new int[1 << 16];
+
+	// written only by the owner of each node
+	private final double[] costs;
+	private final int[] parents;
+
+	private final Worker[] workers;
+
+	// bumped to start each search, or to stop the workers once closed; the
+	// workers count active down as they finish a search
+	private volatile int round;
+	private volatile boolean closed;
+	private boolean started;
+	private final AtomicInteger active = new AtomicInteger();
+	private volatile Thread caller;
+
+	private GraphNode goalNode;
+	private int goal;
+	private final AtomicLong incumbent = new AtomicLong();
+	private final AtomicLong termination = new AtomicLong();
+	private volatile boolean finished;
+	private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+	private long expanded;
+	private long sent;
+
+	/**
+	 * @param graph
+	 *            The graph to search
+	 * @param heuristic
+	 *            Estimates the cost between two nodes
+	 * @param threads
+	 *            The number of worker threads
+	 */
+	public ParallelAStar(IGraph graph, ICostHeuristic<GraphNode> heuristic, int threads) {
+		if (threads < 1 || threads >= 1 << (63 - IDLE_SHIFT)) {
+			throw new IllegalArgumentException("bad number of threads: " + threads);
+		}
+
+		this.graph = graph;
+		this.heuristic = heuristic;
+		this.threads = threads;
+		this.costs = new double[graph.getNodeCount()];
+		this.parents = new int[graph.getNodeCount()];
+
+		Arrays.fill(this.costs, Double.POSITIVE_INFINITY);
+		Arrays.fill(this.parents, -1);
+
+		Random random = new Random(0);
+		for (int i = 0; i < 1 << 16; i++) {
+			this.zobristLow[i] = random.nextInt();
+			this.zobristHigh[i] = random.nextInt();
+		}
+
+		this.workers = new Worker[threads];
+		for (int i = 0; i < threads; i++) {
+			this.workers[i] = new Worker(i);
+		}
+	}
+
+	/**
+	 *
+	 * Finds a shortest path between two nodes, blocking until it is found.
+	 *
+	 * @param start
+	 *            The node to start from
+	 * @param goal
+	 *            The node to search for
+	 * @return The cost of the path, or infinity if the goal cannot be reached
+	 * @throws InterruptedException
+	 *             If interrupted while waiting for the workers, which are
+	 *             stopped before this is thrown
+	 * @throws RuntimeException
+	 *             Or an error, if a worker threw one, such as the heuristic;
+	 *             the other workers are stopped before it is rethrown
+	 */
+	public double search(int start, int goal) throws InterruptedException {
+		this.checkNode(start);
+		this.checkNode(goal);
+
+		if (this.closed) {
+			throw new IllegalStateException("search is closed");
+		}
+
+		// the workers are all waiting for the next round, so their state can
+		// be reset from here
+		for (Worker worker : this.workers) {
+			worker.reset();
+		}
+
+		this.goal = goal;
+		this.goalNode = new GraphNode(this.graph, goal);
+		this.incumbent.set(Double.doubleToLongBits(Double.POSITIVE_INFINITY));
+		this.termination.set(0);
+		this.finished = false;
+		this.failure.set(null);
+		this.caller = Thread.currentThread();
+		this.active.set(this.threads);
+
+		// the start is handed to its owner as if another worker had sent it
+		this.termination.addAndGet(1);
+		Batch first = new Batch();
+		first.add(start, 0, -1);
+		this.workers[this.owner(start)].inbox.push(first);
+
+		this.round++;
+
+		if (!this.started) {
+			this.started = true;
+
+			for (Worker worker : this.workers) {
+				worker.thread.start();
+			}
+		} else {
+			for (Worker worker : this.workers) {
+				LockSupport.unpark(worker.thread);
+			}
+		}
+
+		// the workers must be done before this returns, even when
+		// interrupted, or the next search would reset arrays they still write
+		boolean interrupted = false;
+
+		while (this.active.get() != 0) {
+			LockSupport.park(this);
+
+			if (Thread.interrupted() && !interrupted) {
+				interrupted = true;
+				this.finish();
+			}
+		}
+
+		if (interrupted) {
+			throw new InterruptedException();
+		}
+
+		Throwable failure = this.failure.get();
+
+		if (failure instanceof RuntimeException) {
+			throw (RuntimeException) failure;
+		} else if (failure != null) {
+			throw (Error) failure;
+		}
+
+		this.expanded = 0;
+		this.sent = 0;
+		for (Worker worker : this.workers) {
+			this.expanded += worker.expanded;
+			this.sent += worker.sent;
+		}
+
+		return this.getIncumbent();
+	}
+
+	/**
+	 * Stops the worker threads, ending any search that is running early.
+	 * Searching afterwards throws an {@link IllegalStateException}.
+	 */
+	public synchronized void close() {
+		this.closed = true;
+		this.finish();
+		this.round++;
+
+		for (Worker worker : this.workers) {
+			LockSupport.unpark(worker.thread);
+		}
+	}
+
+	/**
+	 * @return The path found by the last search, from start to goal, or empty
+	 *         if there was none
+	 */
+	public int[] getPath() {
+		if (this.costs[this.goal] == Double.POSITIVE_INFINITY) {
+			return new int[0];
+		}
+
+		int length = 0;
+		for (int node = this.goal; node != -1; node = this.parents[node]) {
+			length++;
+		}
+
+		int[] path = new int[length];
+		int node = this.goal;
+
+		for (int i = length - 1; i >= 0; i--) {
+			path[i] = node;
+			node = this.parents[node];
+		}
+
+		return path;
+	}
+
+	/**
+	 * @return The number of expansions done by the last search, counting
+	 *         nodes expanded more than once each time
+	 */
+	public long getExpanded() {
+		return this.expanded;
+	}
+
+	/**
+	 * @return The number of nodes sent between workers by the last search
+	 */
+	public long getSent() {
+		return this.sent;
+	}
+
+	// ends the search and wakes every parked worker so it can see that
+	private void finish() {
+		this.finished = true;
+
+		for (Worker worker : this.workers) {
+			LockSupport.unpark(worker.thread);
+		}
+	}
+
+	private void checkNode(int node) {
+		if (node < 0 || node >= this.graph.getNodeCount()) {
+			throw new IndexOutOfBoundsException(
+					"node " + node + " outside of " + this.graph.getNodeCount() + " nodes");
+		}
+	}
+
+	private int owner(int node) {
+		int hash = this.zobristLow[node & 0xFFFF] ^ this.zobristHigh[node >>> 16];
+		return (hash & Integer.MAX_VALUE) % this.threads;
+	}
+
+	private double getIncumbent() {
+		return Double.longBitsToDouble(this.incumbent.get());
+	}
+
+	// lowers the cost of the best path found so far; non-negative doubles
+	// order the same way as their bits
+	private void offerIncumbent(double cost) {
+		long bits = Double.doubleToLongBits(cost);
+		long current;
+
+		while (bits < (current = this.incumbent.get())) {
+			if (this.incumbent.compareAndSet(current, bits)) {
+				return;
+			}
+		}
+	}
+
+	// nodes sent to one worker, each with the cost it was reached at and the
+	// node it was reached from
+	private static final class Batch {
+
+		private final int[] nodes = new int[BATCH_SIZE];
+		private final double[] costs = new double[BATCH_SIZE];
+		private final int[] parents = new int[BATCH_SIZE];
+		private int size;
+		private Batch next;
+
+		void add(int node, double cost, int parent) {
+			this.nodes[this.size] = node;
+			this.costs[this.size] = cost;
+			this.parents[this.size] = parent;
+			this.size++;
+		}
+
+	}
+
+	// a stack of batches that many threads push to and one thread drains
+	// whole, so neither side ever waits for the other
+	private static final class Inbox {
+
+		private final AtomicReference<Batch> head = new AtomicReference<Batch>();
+
+		void push(Batch batch) {
+			Batch current;
+
+			do {
+				current = this.head.get();
+				batch.next = current;
+			} while (!this.head.compareAndSet(current, batch));
+		}
+
+		Batch drain() {
+			return this.head.get() == null ? null : this.head.getAndSet(null);
+		}
+
+	}
+
+	private final class Worker implements Runnable {
+
+		private final Thread thread;
+		private final Inbox inbox = new Inbox();
+		private final Batch[] outgoing = new Batch[ParallelAStar.this.threads];
+
+		// open list as a binary heap of f-costs, with the node and the cost it
+		// was added at; entries left behind by cheaper ones are skipped
+		private double[] keys = new double[64];
+		private int[] nodes = new int[64];
+		private double[] reachedAt = new double[64];
+		private int size;
+
+		// nodes whose cost this worker set, to reset before the next search
+		private int[] touched = new int[64];
+		private int touchedCount;
+
+		private long expanded;
+		private long sent;
+		private boolean idle;
+
+		Worker(int index) {
+			this.thread = new Thread(this, "hda-" + index);
+			this.thread.setDaemon(true);
+		}
+
+		// runs one search per round until closed
+		@Override
+		public void run() {
+			ParallelAStar search = ParallelAStar.this;
+			int round = 0;
+
+			while (true) {
+				while (search.round == round) {
+					LockSupport.park(this);
+				}
+
+				round = search.round;
+
+				if (search.closed) {
+					return;
+				}
+
+				try {
+					this.work();
+				} catch (RuntimeException | Error e) {
+					// this worker will never count as idle, so the others must
+					// be stopped here or they would wait for it forever
+					search.failure.compareAndSet(null, e);
+					search.finish();
+				}
+
+				if (search.active.decrementAndGet() == 0) {
+					LockSupport.unpark(search.caller);
+				}
+			}
+		}
+
+		private void work() {
+			ParallelAStar search = ParallelAStar.this;
+			IGraph graph = search.graph;
+			int spins = 0;
+
+			while (!search.finished) {
+
+				this.receive();
+
+				// nothing left here can beat the best path found
+				if (this.size > 0 && this.keys[0] >= search.getIncumbent()) {
+					this.size = 0;
+				}
+
+				if (this.size == 0) {
+					this.flush();
+
+					// once every worker is idle and nothing is in flight, no
+					// worker can be given anything more to do
+					if (!this.idle) {
+						this.idle = true;
+
+						long state = search.termination.addAndGet(1L << IDLE_SHIFT);
+						if (state == (long) search.threads << IDLE_SHIFT) {
+							search.finish();
+						}
+					}
+
+					// a push after the inbox was last checked unparks this
+					// thread, so the park returns at once and nothing is missed
+					if (++spins < SPINS) {
+						Thread.onSpinWait();
+					} else {
+						LockSupport.park(this);
+					}
+
+					continue;
+				}
+
+				spins = 0;
+
+				double reachedAt = this.reachedAt[0];
+				int node = this.poll();
+
+				if (reachedAt > search.costs[node]) {
+					continue;
+				}
+
+				this.expanded++;
+
+				for (long edge = graph.getFirstEdge(node); edge < graph.getEdgeEnd(node); edge++) {
+
+					int target = graph.getTarget(edge);
+					double through = reachedAt + graph.getCost(edge);
+					int owner = search.owner(target);
+
+					if (search.workers[owner] == this) {
+						this.relax(target, through, node);
+					} else {
+						this.send(owner, target, through, node);
+					}
+
+				}
+
+				if (this.expanded % FLUSH_INTERVAL == 0) {
+					this.flush();
+				}
+
+			}
+		}
+
+		// takes every batch sent here into the open list
+		private void receive() {
+			Batch batch = this.inbox.drain();
+
+			if (batch == null) {
+				return;
+			}
+
+			// must stop being idle before the received nodes stop counting as
+			// outstanding, or the search could be seen as over
+			if (this.idle) {
+				this.idle = false;
+				ParallelAStar.this.termination.addAndGet(-(1L << IDLE_SHIFT));
+			}
+
+			int received = 0;
+
+			for (; batch != null; batch = batch.next) {
+				for (int i = 0; i < batch.size; i++) {
+					this.relax(batch.nodes[i], batch.costs[i], batch.parents[i]);
+				}
+				received += batch.size;
+			}
+
+			ParallelAStar.this.termination.addAndGet(-received);
+		}
+
+		private void relax(int node, double cost, int parent) {
+			ParallelAStar search = ParallelAStar.this;
+
+			if (cost >= search.costs[node]) {
+				return;
+			}
+
+			// the goal is never expanded, only recorded
+			if (node == search.goal) {
+				this.touch(node, cost, parent);
+				search.offerIncumbent(cost);
+				return;
+			}
+
+			double estimate = search.heuristic.approxCost(new GraphNode(search.graph, node),
+					search.goalNode);
+
+			if (cost + estimate >= search.getIncumbent()) {
+				return;
+			}
+
+			this.touch(node, cost, parent);
+			this.add(node, cost + estimate, cost);
+		}
+
+		private void touch(int node, double cost, int parent) {
+			ParallelAStar search = ParallelAStar.this;
+
+			if (search.costs[node] == Double.POSITIVE_INFINITY) {
+				if (this.touchedCount == this.touched.length) {
+					this.touched = Arrays.copyOf(this.touched, this.touchedCount * 2);
+				}
+				this.touched[this.touchedCount++] = node;
+			}
+
+			search.costs[node] = cost;
+			search.parents[node] = parent;
+		}
+
+		private void send(int owner, int node, double cost, int parent) {
+			Batch batch = this.outgoing[owner];
+
+			if (batch == null) {
+				batch = this.outgoing[owner] = new Batch();
+			}
+
+			batch.add(node, cost, parent);
+
+			if (batch.size == BATCH_SIZE) {
+				this.push(owner, batch);
+			}
+		}
+
+		private void flush() {
+			for (int owner = 0; owner < this.outgoing.length; owner++) {
+				Batch batch = this.outgoing[owner];
+
+				if (batch != null && batch.size > 0) {
+					this.push(owner, batch);
+				}
+			}
+		}
+
+		// counts the nodes as outstanding before the owner can see them
+		private void push(int owner, Batch batch) {
+			ParallelAStar.this.termination.addAndGet(batch.size);
+			this.sent += batch.size;
+			this.outgoing[owner] = null;
+
+			Worker worker = ParallelAStar.this.workers[owner];
+			worker.inbox.push(batch);
+			LockSupport.unpark(worker.thread);
+		}
+
+		private void reset() {
+			for (int i = 0; i < this.touchedCount; i++) {
+				ParallelAStar.this.costs[this.touched[i]] = Double.POSITIVE_INFINITY;
+				ParallelAStar.this.parents[this.touched[i]] = -1;
+			}
+
+			this.touchedCount = 0;
+
+			// a search stopped early may leave nodes behind
+			this.size = 0;
+			this.inbox.drain();
+			Arrays.fill(this.outgoing, null);
+
+			this.idle = false;
+			this.expanded = 0;
+			this.sent = 0;
+		}
+
+		private void add(int node, double key, double cost) {
+			if (this.size == this.keys.length) {
+				this.keys = Arrays.copyOf(this.keys, this.size * 2);
+				this.nodes = Arrays.copyOf(this.nodes, this.size * 2);
+				this.reachedAt = Arrays.copyOf(this.reachedAt, this.size * 2);
+			}
+
+			int index = this.size++;
+
+			while (index > 0) {
+				int parent = (index - 1) >>> 1;
+
+				if (this.keys[parent] <= key) {
+					break;
+				}
+
+				this.set(index, parent);
+				index = parent;
+			}
+
+			this.keys[index] = key;
+			this.nodes[index] = node;
+			this.reachedAt[index] = cost;
+		}
+
+		private int poll() {
+			int first = this.nodes[0];
+			int last = --this.size;
+
+			double key = this.keys[last];
+			int node = this.nodes[last];
+			double cost = this.reachedAt[last];
+			int index = 0;
+			int half = this.size >>> 1;
+
+			while (index < half) {
+				int child = 2 * index + 1;
+
+				if (child + 1 < this.size && this.keys[child + 1] < this.keys[child]) {
+					child++;
+				}
+
+				if (key <= this.keys[child]) {
+					break;
+				}
+
+				this.set(index, child);
+				index = child;
+			}
+
+			this.keys[index] = key;
+			this.nodes[index] = node;
+			this.reachedAt[index] = cost;
+
+			return first;
+		}
+
+		private void set(int to, int from) {
+			this.keys[to] = this.keys[from];
+			this.nodes[to] = this.nodes[from];
+			this.reachedAt[to] = this.reachedAt[from];
+		}
+
+	}
+
+}
@@ -0,0 +1,84 @@
+package astar.graph;
+
+/**
+ *
+ * An {@link ArrayGraph} that stores each edge cost as a small unsigned
+ * integer. Every cost is recovered as {@code offset + value * scale}, with the
+ * offset and scale shared by all edges, so a cost can be off by up to half a
+ * scale step.
+ *
+ * @see ShortCostGraph
+ * @see ByteCostGraph
+ */
+public abstract class QuantizedCostGraph extends ArrayGraph {
+
+	protected final double offset;
+	protected final double scale;
+
+	/**
+	 * @param offsets
+	 *            The first edge of each node, followed by the total number of
+	 *            edges
+	 * @param targets
+	 *            The node each edge goes to
+	 * @param offset
+	 *            The cost stored as zero
+	 * @param scale
+	 *            The cost difference between two neighboring stored values
+	 */
+	protected QuantizedCostGraph(int[] offsets, int[] targets, double offset, double scale) {
+		super(offsets, targets);
+		this.offset = offset;
+		this.scale = scale;
+	}
+
+	/**
+	 * @return The cost stored as zero, which is the lowest cost in the graph
+	 */
+	public double getOffset() {
+		return this.offset;
+	}
+
+	/**
+	 * @return The cost difference between two neighboring stored values
+	 */
+	public double getScale() {
+		return this.scale;
+	}
+
+	/**
+	 * @return The most any stored cost can differ from the original cost
+	 */
+	public double getMaxError() {
+		return this.scale / 2;
+	}
+
+	// finds the lowest and highest cost of a graph, and from them the offset
+	// and scale that spread the costs evenly over the given number of values
+	static double[] rangeOf(IGraph graph, int maxValue) {
+		double min = Double.POSITIVE_INFINITY;
+		double max = Double.NEGATIVE_INFINITY;
+
+		for (long edge = 0; edge < graph.getEdgeCount(); edge++) {
+			double cost = graph.getCost(edge);
+			min = Math.min(min, cost);
+			max = Math.max(max, cost);
+		}
+
+		if (min > max) {
+			return new double[] {0, 0};
+		}
+
+		return new double[] {min, (max - min) / maxValue};
+	}
+
+	static int quantize(double cost, double offset, double scale, int maxValue) {
+		if (scale == 0) {
+			return 0;
+		}
+
+		long value = Math.round((cost - offset) / scale);
+		return (int) Math.max(0, Math.min(maxValue, value));
+	}
+
+}
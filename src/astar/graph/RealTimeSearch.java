@@ -0,0 +1,304 @@
+package astar.graph;
+
+import java.util.Arrays;
+
+import astar.ICostHeuristic;
+
+/**
+ *
+ * Moves an agent towards a goal one edge per call, spending at most a fixed
+ * number of node expansions on each, in the manner of LSS-LRTA*. A search is
+ * a small A* search around the agent. Afterwards the estimated cost to the
+ * goal of every node it expanded is raised to what the search learned, and
+ * the agent follows the path to the most promising node on the edge of the
+ * searched area, one edge per call, before searching again.
+ *
+ * <p>
+ * The estimates are kept in a table indexed by node and carry over from
+ * step to step, and from trial to trial as long as the goal stays the same.
+ * The agent therefore cannot be trapped in a dead end for good: each visit
+ * raises its estimates until the way out looks cheaper. Over repeated trials
+ * from the same start, the paths taken converge on a shortest path if the
+ * heuristic never overestimates.
+ * </p>
+ *
+ * <p>
+ * A step that searches does at most the given number of expansions,
+ * followed by a learning pass over the nodes it expanded, so its cost is
+ * bounded by the lookahead whatever the size of the graph; other steps only
+ * read the next move. The reversed graph is built once, since
+ * learning passes costs back along incoming edges. All scratch arrays are
+ * allocated up front, and an instance must not be shared between threads.
+ * </p>
+ */
+public class RealTimeSearch {
+
+	private final IGraph graph;
+	private final IGraph reversed;
+	private final ICostHeuristic<GraphNode> heuristic;
+	private final int lookahead;
+
+	// learned cost to the goal of each node, NaN until first needed
+	private final double[] learned;
+
+	// per-step state, valid where seen[node] == generation
+	private final int[] seen;
+	private final int[] closed;
+	private final double[] costs;
+	private final int[] parents;
+	private final int[] expandedNodes;
+	private final IntHeap open;
+	private final IntHeap frontier;
+	private int generation;
+
+	// the moves left towards the node the last search picked, the next at
+	// plan[planIndex]
+	private final int[] plan;
+	private int planIndex;
+	private int planLength;
+	private int planFrom = -1;
+
+	private int goal = -1;
+	private GraphNode goalNode;
+	private int expanded;
+
+	/**
+	 * @param graph
+	 *            The graph to move over
+	 * @param heuristic
+	 *            Gives the first estimate of each node's cost to the goal
+	 * @param lookahead
+	 *            The greatest number of nodes to expand in each step, at least
+	 *            one
+	 */
+	public RealTimeSearch(IGraph graph, ICostHeuristic<GraphNode> heuristic, int lookahead) {
+		if (lookahead < 1) {
+			throw new IllegalArgumentException("lookahead must be positive: " + lookahead);
+		}
+
+		int nodes = graph.getNodeCount();
+
+		this.graph = graph;
+		this.reversed = ShortestPaths.reverse(graph);
+		this.heuristic = heuristic;
+		this.lookahead = lookahead;
+
+		this.learned = new double[nodes];
+		this.seen = new int[nodes];
+		this.closed = new int[nodes];
+		this.costs = new double[nodes];
+		this.parents = new int[nodes];
+		this.expandedNodes = new int[lookahead];
+		this.plan = new int[lookahead + 1];
+		this.open = new IntHeap(nodes);
+		this.frontier = new IntHeap(nodes);
+	}
+
+	/**
+	 * Sets the goal to move towards. Estimates learned for another goal are
+	 * forgotten, and those learned for this goal are kept.
+	 *
+	 * @param goal
+	 *            The goal node
+	 */
+	public void setGoal(int goal) {
+		if (goal != this.goal) {
+			this.goal = goal;
+			this.goalNode = new GraphNode(this.graph, goal);
+			Arrays.fill(this.learned, Double.NaN);
+		}
+
+		this.planFrom = -1;
+	}
+
+	/**
+	 *
+	 * Picks the agent's next move. If the agent is where the last search
+	 * expected, the next move of that search's path is taken without
+	 * searching. Otherwise a new search is run around the agent, its lessons
+	 * are learned, and the path to the node it picked is followed from then
+	 * on.
+	 *
+	 * @param current
+	 *            The node the agent is at
+	 * @return The node to move to next, which is current itself once the goal
+	 *         is reached, or -1 once the goal is known to be unreachable.
+	 *         That is known when a search finds no way out of the area it
+	 *         expanded, or only ways into nodes learned to be cut off, such
+	 *         as when the whole part of the graph the agent can reach fits
+	 *         in one lookahead. A larger part of the graph cut off from the
+	 *         goal is not detected: the agent keeps moving around it while
+	 *         its estimates rise.
+	 */
+	public int step(int current) {
+		if (this.goal < 0) {
+			throw new IllegalStateException("no goal set");
+		}
+
+		this.expanded = 0;
+
+		if (current == this.goal) {
+			return current;
+		}
+
+		if (current != this.planFrom || this.planIndex == this.planLength) {
+			int best = this.lookahead(current);
+
+			if (best < 0) {
+				this.planFrom = -1;
+				return -1;
+			}
+
+			this.learn();
+
+			// the path from current to best, stored from the end
+			this.planLength = this.plan.length;
+			for (int node = best; node != current; node = this.parents[node]) {
+				this.plan[--this.planLength] = node;
+			}
+
+			this.planIndex = this.planLength;
+			this.planLength = this.plan.length;
+		}
+
+		int next = this.plan[this.planIndex++];
+		this.planFrom = next;
+		return next;
+	}
+
+	// runs A* from current until the lookahead is spent or the goal is next,
+	// returning the open node with the lowest cost, or -1 if there are none
+	// or none of them can reach the goal
+	private int lookahead(int current) {
+		IGraph graph = this.graph;
+		IntHeap open = this.open;
+		int generation = ++this.generation;
+
+		open.clear();
+		this.seen[current] = generation;
+		this.costs[current] = 0;
+		this.parents[current] = -1;
+		open.add(current, this.estimate(current));
+
+		while (!open.isEmpty() && this.expanded < this.lookahead) {
+
+			// the goal is never expanded, so the agent heads straight for it
+			// once it has been found
+			int node = open.poll();
+
+			if (node == this.goal) {
+				return node;
+			}
+
+			this.closed[node] = generation;
+			this.expandedNodes[this.expanded++] = node;
+
+			double cost = this.costs[node];
+
+			for (long edge = graph.getFirstEdge(node); edge < graph.getEdgeEnd(node); edge++) {
+
+				int target = graph.getTarget(edge);
+				double through = cost + graph.getCost(edge);
+
+				if (this.closed[target] == generation) {
+					continue;
+				}
+
+				if (this.seen[target] != generation || through < this.costs[target]) {
+					this.seen[target] = generation;
+					this.costs[target] = through;
+					this.parents[target] = node;
+					open.add(target, through + this.estimate(target));
+				}
+
+			}
+
+		}
+
+		if (open.isEmpty()) {
+			return -1;
+		}
+
+		// every open node has been learned to be cut off from the goal, and
+		// the goal was not among the nodes expanded, so it cannot be reached
+		int best = open.poll();
+		return this.costs[best] + this.estimate(best) == Double.POSITIVE_INFINITY ? -1 : best;
+	}
+
+	// raises the estimate of each expanded node to the cheapest way through
+	// the searched area to an open node plus that node's estimate, running
+	// Dijkstra's Algorithm backwards from the open nodes
+	private void learn() {
+		IGraph reversed = this.reversed;
+		IntHeap frontier = this.frontier;
+		int generation = this.generation;
+
+		frontier.clear();
+
+		for (int i = 0; i < this.expanded; i++) {
+			int node = this.expandedNodes[i];
+			this.learned[node] = Double.POSITIVE_INFINITY;
+
+			// the open nodes are the unexpanded neighbours of expanded nodes
+			for (long edge = this.graph.getFirstEdge(node); edge < this.graph
+					.getEdgeEnd(node); edge++) {
+
+				int target = this.graph.getTarget(edge);
+
+				if (this.closed[target] != generation) {
+					frontier.add(target, this.estimate(target));
+				}
+
+			}
+		}
+
+		while (!frontier.isEmpty()) {
+
+			int node = frontier.poll();
+			double estimate = this.learned[node];
+
+			for (long edge = reversed.getFirstEdge(node); edge < reversed
+					.getEdgeEnd(node); edge++) {
+
+				int source = reversed.getTarget(edge);
+				double through = estimate + reversed.getCost(edge);
+
+				if (this.closed[source] == generation && through < this.learned[source]) {
+					this.learned[source] = through;
+					frontier.add(source, through);
+				}
+
+			}
+
+		}
+	}
+
+	private double estimate(int node) {
+		double estimate = this.learned[node];
+
+		if (Double.isNaN(estimate)) {
+			estimate = this.heuristic.approxCost(new GraphNode(this.graph, node), this.goalNode);
+			this.learned[node] = estimate;
+		}
+
+		return estimate;
+	}
+
+	/**
+	 * @return The number of nodes expanded by the last step
+	 */
+	public int getExpanded() {
+		return this.expanded;
+	}
+
+	/**
+	 * @param node
+	 *            A node number
+	 * @return The node's current estimated cost to the goal, or NaN if it has
+	 *         not been needed yet
+	 */
+	public double getLearned(int node) {
+		return this.learned[node];
+	}
+
+}
@@ -0,0 +1,183 @@
+package astar.graph;
+
+import java.util.Arrays;
+
+/**
+ * Whole-graph computations over an {@link IGraph} whose results are worth
+ * precomputing and storing, such as in a {@link GraphSnapshot}.
+ */
+public class ShortestPaths {
+
+	private ShortestPaths() {
+	}
+
+	/**
+	 *
+	 * Runs Dijkstra's Algorithm from a node over the whole graph.
+	 *
+	 * @param graph
+	 *            The graph to search
+	 * @param source
+	 *            The node to measure distances from
+	 * @param distances
+	 *            Filled with the distance from the source to each node, or
+	 *            infinity if it cannot be reached
+	 * @param parents
+	 *            Filled with the node before each node on a shortest path, or
+	 *            -1 for the source and unreachable nodes; may be null
+	 */
+	public static void run(IGraph graph, int source, double[] distances, int[] parents) {
+		Arrays.fill(distances, Double.POSITIVE_INFINITY);
+
+		if (parents != null) {
+			Arrays.fill(parents, -1);
+		}
+
+		IntHeap heap = new IntHeap(graph.getNodeCount());
+
+		distances[source] = 0;
+		heap.add(source, 0);
+
+		while (!heap.isEmpty()) {
+
+			int node = heap.poll();
+			double distance = distances[node];
+
+			for (long edge = graph.getFirstEdge(node); edge < graph.getEdgeEnd(node); edge++) {
+
+				int target = graph.getTarget(edge);
+				double through = distance + graph.getCost(edge);
+
+				if (through < distances[target]) {
+					distances[target] = through;
+
+					if (parents != null) {
+						parents[target] = node;
+					}
+
+					heap.add(target, through);
+				}
+
+			}
+
+		}
+	}
+
+	/**
+	 *
+	 * Finds the distance from a node to every other node.
+	 *
+	 * @param graph
+	 *            The graph to search
+	 * @param source
+	 *            The node to measure distances from
+	 * @return The distance to each node, or infinity if it cannot be reached
+	 */
+	public static double[] distancesFrom(IGraph graph, int source) {
+		double[] distances = new double[graph.getNodeCount()];
+		run(graph, source, distances, null);
+		return distances;
+	}
+
+	/**
+	 *
+	 * Builds a graph with every edge turned around, keeping its cost. A search
+	 * from a node over the reversed graph measures distances to that node in
+	 * the original.
+	 *
+	 * @param graph
+	 *            The graph to reverse
+	 * @return The reversed graph
+	 */
+	public static DoubleCostGraph reverse(IGraph graph) {
+		int nodes = graph.getNodeCount();
+		long edges = graph.getEdgeCount();
+
+		if (edges > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("too many edges for an array graph: " + edges);
+		}
+
+		int[] offsets = new int[nodes + 1];
+
+		// count the edges entering each node, then turn the counts into offsets
+		for (int edge = 0; edge < edges; edge++) {
+			offsets[graph.getTarget(edge) + 1]++;
+		}
+
+		for (int node = 0; node < nodes; node++) {
+			offsets[node + 1] += offsets[node];
+		}
+
+		int[] next = Arrays.copyOf(offsets, nodes);
+		int[] targets = new int[(int) edges];
+		double[] costs = new double[(int) edges];
+
+		for (int node = 0; node < nodes; node++) {
+			for (long edge = graph.getFirstEdge(node); edge < graph.getEdgeEnd(node); edge++) {
+				int index = next[graph.getTarget(edge)]++;
+				targets[index] = node;
+				costs[index] = graph.getCost(edge);
+			}
+		}
+
+		return new DoubleCostGraph(offsets, targets, costs);
+	}
+
+	/**
+	 *
+	 * Labels the connected components of a graph, treating every edge as if
+	 * it could be traversed both ways. Two nodes with different labels can
+	 * never reach each other, which lets a search for an unreachable goal be
+	 * skipped.
+	 *
+	 * @param graph
+	 *            The graph to label
+	 * @return The component of each node, numbered from zero in order of the
+	 *         lowest node in each
+	 */
+	public static int[] components(IGraph graph) {
+		int nodes = graph.getNodeCount();
+		int[] roots = new int[nodes];
+
+		for (int node = 0; node < nodes; node++) {
+			roots[node] = node;
+		}
+
+		for (int node = 0; node < nodes; node++) {
+			for (long edge = graph.getFirstEdge(node); edge < graph.getEdgeEnd(node); edge++) {
+
+				int a = find(roots, node);
+				int b = find(roots, graph.getTarget(edge));
+
+				// the lower node becomes the root so labels follow node order
+				if (a < b) {
+					roots[b] = a;
+				} else if (b < a) {
+					roots[a] = b;
+				}
+
+			}
+		}
+
+		int[] labels = new int[nodes];
+		int count = 0;
+
+		for (int node = 0; node < nodes; node++) {
+			int root = find(roots, node);
+			labels[node] = root == node ? count++ : labels[root];
+		}
+
+		return labels;
+	}
+
+	// finds the root of a node's set, halving the path to it along the way
+	private static int find(int[] roots, int node) {
+		while (roots[node] != node) {
+			roots[node] = roots[roots[node]];
+			node = roots[node];
+		}
+
+		return node;
+	}
+
+}
@@ -5,15 +5,19 @@ import java.awt.Graphics;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionListener;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.function.BooleanSupplier;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 import astar.AStar;
 import astar.ICostHeuristic;
-import example.noise.PerlinNoiseGenerator;
+import astar.ISearchListener;
 
 public class AStarPerlinTest extends JFrame implements MouseMotionListener {
 
@@ -23,6 +27,80 @@ public class AStarPerlinTest extends JFrame implements MouseMotionListener {
 
 	private static final long serialVersionUID = 1L;
 
+	// a finished search, ready to draw: the pixels it reached, as indices
+	// into the image, and the colour of each
+	private static class Frame {
+
+		private final List<GridNode> path;
+		private final int[] pixels;
+		private final int[] colors;
+		private final int minX, minY, maxX, maxY;
+
+		Frame(List<GridNode> path, int[] pixels, int[] colors, int minX, int minY, int maxX,
+				int maxY) {
+			this.path = path;
+			this.pixels = pixels;
+			this.colors = colors;
+			this.minX = minX;
+			this.minY = minY;
+			this.maxX = maxX;
+			this.maxY = maxY;
+		}
+
+	}
+
+	// records the pixels a search reaches and their costs as the search runs,
+	// so nothing has to look nodes up afterwards
+	private class Recorder implements ISearchListener<GridNode> {
+
+		// stamp[pixel] == generation marks pixels reached by this search
+		private final int[] stamp = new int[tiles * tiles];
+		private final double[] costs = new double[tiles * tiles];
+		private int generation;
+
+		private int[] reached = new int[1024];
+		private int count;
+
+		// costs only fall once reported, so the least reported is the least
+		// final cost; the greatest may have been improved since, so it is found
+		// from the final costs instead
+		private double minCost;
+		private int minX, minY, maxX, maxY;
+
+		void reset() {
+			this.generation++;
+			this.count = 0;
+			this.minCost = Double.MAX_VALUE;
+			this.minX = this.minY = Integer.MAX_VALUE;
+			this.maxX = this.maxY = Integer.MIN_VALUE;
+		}
+
+		@Override
+		public void nodeReached(GridNode node, double costFromStart, double heuristicValue) {
+			int pixel = node.y * tiles + node.x;
+
+			if (this.stamp[pixel] != this.generation) {
+				this.stamp[pixel] = this.generation;
+
+				if (this.count == this.reached.length) {
+					this.reached = Arrays.copyOf(this.reached, this.count * 2);
+				}
+				this.reached[this.count++] = pixel;
+
+				this.minX = Math.min(this.minX, node.x);
+				this.minY = Math.min(this.minY, node.y);
+				this.maxX = Math.max(this.maxX, node.x);
+				this.maxY = Math.max(this.maxY, node.y);
+			}
+
+			double cost = costFromStart + heuristicValue;
+
+			this.costs[pixel] = cost;
+			this.minCost = Math.min(this.minCost, cost);
+		}
+
+	}
+
 	private class DrawCanvas extends JPanel {
 
 		private static final long serialVersionUID = 1L;
@@ -41,8 +119,17 @@ public class AStarPerlinTest extends JFrame implements MouseMotionListener {
 	private double heightWeight = 50;
 	private GridNode[][] grid;
 	private double[][] heights;
+
+	// set once everything else is, so the event thread can tell when tiles
+	// finished while the frame was being set up can be drawn
+	private volatile GridTerrain terrain;
 	private AStar<GridNode> astar;
 
+	private QueryPipeline<GridNode, Frame> pipeline;
+	private Recorder recorder;
+	private Frame frame;
+	private DrawCanvas canvas;
+
 	private int octaves = 3;
 	private double amplitude = 5;
 	private double frequency = 0.35;
@@ -52,174 +139,173 @@ public class AStarPerlinTest extends JFrame implements MouseMotionListener {
 
 	private BufferedImage perlinImg = new BufferedImage(tiles, tiles, BufferedImage.TYPE_INT_RGB);
 
-	public AStarPerlinTest() {
-
-		PerlinNoiseGenerator noise = new PerlinNoiseGenerator(new Random());
+	// the image's own pixels, written only on the event thread, and the plain
+	// terrain to restore pixels from
+	private int[] pixels = ((DataBufferInt) perlinImg.getRaster().getDataBuffer()).getData();
+	private int[] terrainPixels = new int[tiles * tiles];
 
-		this.heights = new double[tiles][tiles];
-
-		this.grid = new GridNode[tiles][tiles];
-
-		for (int col = 0; col < tiles; col++) {
-			for (int row = 0; row < tiles; row++) {
-
-				grid[col][row] = new GridNode(col, row);
-				heights[col][row] =
-						Math.abs(noise.noise(col, row, octaves, frequency, amplitude, true));
+	public AStarPerlinTest() {
 
-				int c = (int) (heights[col][row] * 255);
-				perlinImg.setRGB(col, row, new Color(c, c, c).getRGB());
+		GridGraphBuilder builder = new GridGraphBuilder(new Random().nextLong(), octaves,
+				frequency, amplitude, heightWeight);
+		// the terrain is drawn and searched block by block as it is built
+		GridTerrain terrain = builder.buildAsync(tiles, tiles, this::tileBuilt);
 
-			}
-		}
+		this.grid = terrain.getGrid();
+		this.heights = terrain.getHeights();
 
-		double root2 = Math.sqrt(2.0); // diagonal distance between two tiles
+		ICostHeuristic<GridNode> heuristic = new GridHeuristic(this.grid, 0.5, 0.5);
 
-		for (int col = 0; col < tiles; col++) {
-			for (int row = 0; row < tiles; row++) {
+		astar = new AStar<GridNode>(grid[tiles / 2][tiles / 2], heuristic);
+		recorder = new Recorder();
+		astar.setListener(recorder);
 
-				GridNode node = grid[col][row];
+		// searches run off the event thread, which only draws their results
+		pipeline = new QueryPipeline<GridNode, Frame>(this::search, this::show);
 
-				boolean colPlusOne = col + 1 < tiles;
-				boolean colMinusOne = col - 1 >= 0;
-				boolean rowPlusOne = row + 1 < tiles;
-				boolean rowMinusOne = row - 1 >= 0;
+		this.addMouseMotionListener(this);
 
-				double nodeHeight = heights[col][row];
+		setSize(size, size);
+		canvas = new DrawCanvas();
+		add(canvas);
+		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+		setResizable(false);
+		setVisible(true);
 
-				if (colPlusOne) {
-					node.addConnection(grid[col + 1][row],
-							Math.abs(nodeHeight - heights[col + 1][row]) * heightWeight + 1);
-				}
+		// blocks finished before now were not drawn, so draw every built one
+		this.terrain = terrain;
+		SwingUtilities.invokeLater(() -> this.showTiles(0, 0, tiles, tiles));
 
-				if (rowPlusOne) {
-					node.addConnection(grid[col][row + 1],
-							Math.abs(nodeHeight - heights[col][row + 1]) * heightWeight + 1);
-				}
+	}
 
-				if (colMinusOne) {
-					node.addConnection(grid[col - 1][row],
-							Math.abs(nodeHeight - heights[col - 1][row]) * heightWeight + 1);
-				}
+	// runs on a builder thread
+	void tileBuilt(int col, int row, int width, int height) {
+		SwingUtilities.invokeLater(() -> this.showTiles(col, row, width, height));
+	}
 
-				if (rowMinusOne) {
-					node.addConnection(grid[col][row - 1],
-							Math.abs(nodeHeight - heights[col][row - 1]) * heightWeight + 1);
-				}
+	// runs on the event thread, drawing the built tiles of the given area and
+	// searching again so the path can cross them
+	void showTiles(int col, int row, int width, int height) {
 
-				if (colPlusOne && rowPlusOne) {
-					node.addConnection(grid[col + 1][row + 1],
-							Math.abs(nodeHeight - heights[col + 1][row + 1]) * heightWeight
-									+ root2);
-				}
+		GridTerrain terrain = this.terrain;
 
-				if (colMinusOne && rowPlusOne) {
-					node.addConnection(grid[col - 1][row + 1],
-							Math.abs(nodeHeight - heights[col - 1][row + 1]) * heightWeight
-									+ root2);
-				}
+		if (terrain == null) {
+			return;
+		}
 
-				if (colMinusOne && rowMinusOne) {
-					node.addConnection(grid[col - 1][row - 1],
-							Math.abs(nodeHeight - heights[col - 1][row - 1]) * heightWeight
-									+ root2);
-				}
+		for (int x = col; x < col + width; x++) {
+			for (int y = row; y < row + height; y++) {
 
-				if (colPlusOne && rowMinusOne) {
-					node.addConnection(grid[col + 1][row - 1],
-							Math.abs(nodeHeight - heights[col + 1][row - 1]) * heightWeight
-									+ root2);
+				if (terrain.isBuilt(x, y)) {
+					int c = (int) (this.heights[x][y] * 255);
+					this.terrainPixels[y * tiles + x] = c << 16 | c << 8 | c;
+					this.pixels[y * tiles + x] = this.terrainPixels[y * tiles + x];
 				}
 
 			}
 		}
 
-		ICostHeuristic<GridNode> heuristic = new GridHeuristic(this.grid, 0.5, 0.5);
-
-		astar = new AStar<GridNode>(grid[tiles / 2][tiles / 2], heuristic);
-
-		this.addMouseMotionListener(this);
-
-		setSize(size, size);
-		add(new DrawCanvas());
-		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-		setResizable(false);
-		setVisible(true);
+		int tileSize = this.size / this.tiles;
+		this.canvas.repaint(col * tileSize, row * tileSize, width * tileSize, height * tileSize);
 
+		this.pipeline.submit(this.grid[goalX][goalY]);
 	}
 
 	void draw(Graphics g) {
 
 		g.drawImage(perlinImg, 0, 0, this.size, this.size, null);
 
-		drawPath(g, Color.RED, this.astar);
+		if (this.frame != null) {
+			drawPath(g, Color.RED, this.frame.path);
+		}
 
 	}
 
-	void drawPath(Graphics g, Color color, AStar<GridNode> astar) {
-		int tileSize = this.size / this.tiles;
+	// runs on the pipeline's thread, which owns the search
+	Frame search(GridNode goal, BooleanSupplier stale) {
 
-		List<GridNode> path = astar.getPath(this.grid[goalX][goalY]);
+		Recorder recorder = this.recorder;
+		recorder.reset();
 
-		g.setColor(color);
+		if (!this.astar.calculate(goal, stale)) {
+			return null;
+		}
 
-		GridNode prev = null;
-		for (GridNode node : path) {
-			if (prev != null) {
-				g.drawLine(node.x * tileSize + tileSize / 2, node.y * tileSize + tileSize / 2,
-						prev.x * tileSize + tileSize / 2, prev.y * tileSize + tileSize / 2);
-			}
-			prev = node;
+		int[] pixels = Arrays.copyOf(recorder.reached, recorder.count);
+		int[] colors = new int[pixels.length];
+		double maxCost = recorder.minCost;
+
+		for (int pixel : pixels) {
+			maxCost = Math.max(maxCost, recorder.costs[pixel]);
 		}
-	}
 
-	void drawVisitedNodes(AStar<GridNode> astar) {
-		double maxCost = Double.MIN_VALUE;
-		double minCost = Double.MAX_VALUE;
+		double range = maxCost - recorder.minCost;
+		GridTerrain terrain = this.terrain;
 
-		for (int col = 0; col < tiles; col++) {
-			for (int row = 0; row < tiles; row++) {
+		for (int i = 0; i < pixels.length; i++) {
 
-				AStar<GridNode>.NodeData data = astar.getData(this.grid[col][row]);
+			// the terrain pixels belong to the event thread, so the height is
+			// read instead, once its tile is built
+			int x = pixels[i] % tiles;
+			int y = pixels[i] / tiles;
+			int c = terrain != null && terrain.isBuilt(x, y) ? (int) (this.heights[x][y] * 255) : 0;
+			double shade = range > 0 ? (recorder.costs[pixels[i]] - recorder.minCost) / range : 0;
 
-				if (data != null) {
+			colors[i] = ((int) (shade * 255.0 / 3) + c / 3) << 8;
+		}
 
-					if (data.cost() > maxCost) {
-						maxCost = data.cost();
-					}
+		return new Frame(this.astar.getPath(goal), pixels, colors, recorder.minX, recorder.minY,
+				recorder.maxX, recorder.maxY);
+	}
 
-					if (data.cost() < minCost) {
-						minCost = data.cost();
-					}
+	// runs on the event thread, and changes only the pixels the last frame or
+	// this one reached
+	void show(Frame frame) {
 
-				}
+		Frame last = this.frame;
 
+		if (last != null) {
+			for (int pixel : last.pixels) {
+				this.pixels[pixel] = this.terrainPixels[pixel];
 			}
 		}
 
-		double range = maxCost - minCost;
-
-		for (int col = 0; col < tiles; col++) {
-			for (int row = 0; row < tiles; row++) {
+		for (int i = 0; i < frame.pixels.length; i++) {
+			this.pixels[frame.pixels[i]] = frame.colors[i];
+		}
 
-				int c = (int) (heights[col][row] * 255);
+		this.frame = frame;
 
-				AStar<GridNode>.NodeData data = astar.getData(this.grid[col][row]);
+		// the paths lie within the pixels their searches reached
+		int minX = frame.minX, minY = frame.minY, maxX = frame.maxX, maxY = frame.maxY;
 
-				if (data != null) {
+		if (last != null) {
+			minX = Math.min(minX, last.minX);
+			minY = Math.min(minY, last.minY);
+			maxX = Math.max(maxX, last.maxX);
+			maxY = Math.max(maxY, last.maxY);
+		}
 
-					perlinImg.setRGB(col, row,
-							new Color(0,
-									(int) ((data.cost() - minCost) / range * 255.0 / 3) + c / 3, 0)
-											.getRGB());
+		int tileSize = this.size / this.tiles;
+		this.canvas.repaint(minX * tileSize, minY * tileSize, (maxX - minX + 1) * tileSize,
+				(maxY - minY + 1) * tileSize);
 
-				} else {
+		this.setTitle(String.format("frame latency p50 %.1f ms, p99 %.1f ms",
+				this.pipeline.getLatency(50), this.pipeline.getLatency(99)));
+	}
 
-					perlinImg.setRGB(col, row, new Color(c, c, c).getRGB());
+	void drawPath(Graphics g, Color color, List<GridNode> path) {
+		int tileSize = this.size / this.tiles;
 
-				}
+		g.setColor(color);
 
+		GridNode prev = null;
+		for (GridNode node : path) {
+			if (prev != null) {
+				g.drawLine(node.x * tileSize + tileSize / 2, node.y * tileSize + tileSize / 2,
+						prev.x * tileSize + tileSize / 2, prev.y * tileSize + tileSize / 2);
 			}
+			prev = node;
 		}
 	}
 
@@ -229,11 +315,7 @@ public class AStarPerlinTest extends JFrame implements MouseMotionListener {
 		this.goalX = (int) Math.max(Math.min(e.getX() / ((double) size / tiles), tiles - 1), 0);
 		this.goalY = (int) Math.max(Math.min(e.getY() / ((double) size / tiles), tiles - 1), 0);
 
-		this.astar.calculate(this.grid[goalX][goalY]);
-
-		this.drawVisitedNodes(this.astar);
-
-		this.repaint();
+		this.pipeline.submit(this.grid[goalX][goalY]);
 	}
 
 	@Override
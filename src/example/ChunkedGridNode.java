@@ -0,0 +1,65 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import astar.Edge;
+import astar.INode;
+
+// represents a tile of a ChunkedGridWorld, created as edges are followed
+// two nodes are equal if they are at the same coordinates
+public class ChunkedGridNode implements INode<ChunkedGridNode> {
+
+	public final int x, y;
+	private final ChunkedGridWorld world;
+
+	ChunkedGridNode(ChunkedGridWorld world, int x, int y) {
+		this.world = world;
+		this.x = x;
+		this.y = y;
+	}
+
+	// gets the edges to all eight neighbors, generating the chunk this node
+	// is in if it is not already loaded
+	@Override
+	public Collection<Edge<ChunkedGridNode>> edges() {
+		List<Edge<ChunkedGridNode>> edges =
+				new ArrayList<Edge<ChunkedGridNode>>(GridGraphBuilder.NEIGHBOR_COLS.length);
+		double[] costs = new double[GridGraphBuilder.NEIGHBOR_COLS.length];
+
+		this.world.getCosts(this.x, this.y, costs);
+
+		for (int i = 0; i < GridGraphBuilder.NEIGHBOR_COLS.length; i++) {
+			edges.add(new Edge<ChunkedGridNode>(
+					new ChunkedGridNode(this.world, this.x + GridGraphBuilder.NEIGHBOR_COLS[i],
+							this.y + GridGraphBuilder.NEIGHBOR_ROWS[i]),
+					costs[i]));
+		}
+
+		return edges;
+	}
+
+	// computes a hashcode from both coordinates, which may be negative
+	@Override
+	public int hashCode() {
+		return this.x * 31 + this.y;
+	}
+
+	// checks if this node is at the same coordinates as the given object
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+
+		if (!(obj instanceof ChunkedGridNode)) {
+			return false;
+		}
+
+		ChunkedGridNode other = (ChunkedGridNode) obj;
+
+		return this.x == other.x && this.y == other.y && this.world == other.world;
+	}
+
+}
@@ -0,0 +1,210 @@
+package example;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An unbounded grid of tiles whose heights and edge costs are generated in
+ * square chunks, only when a search first reaches them. At most a fixed
+ * number of chunks are kept, and the least recently used chunk is dropped
+ * when another is needed. A dropped chunk is generated again if it is
+ * reached later, with the same values, since every height depends only on
+ * the terrain's seed and the tile's coordinates.
+ *
+ * <p>
+ * Nodes are {@link ChunkedGridNode}s created as edges are followed, so with
+ * the default hash-based node state of {@link astar.AStar} the memory used by
+ * a search grows with the area it explores rather than with the world.
+ * </p>
+ *
+ * <p>
+ * One world can be searched from several threads. Only looking up and
+ * storing chunks takes a lock; chunks are generated outside it, so a thread
+ * generating one does not hold up threads reading others. Two threads that
+ * miss the same chunk at once may both generate it, and the one stored
+ * first is kept.
+ * </p>
+ */
+public class ChunkedGridWorld {
+
+	private static final int DIRECTIONS = GridGraphBuilder.NEIGHBOR_COLS.length;
+
+	private final GridGraphBuilder terrain;
+	private final int chunkSize;
+	private final Map<Long, Chunk> chunks;
+
+	private long generated;
+	private long evicted;
+
+	/**
+	 * @param terrain
+	 *            Gives the height of each tile and the cost of each move
+	 * @param chunkSize
+	 *            Number of tiles along each side of a chunk
+	 * @param maxChunks
+	 *            Number of chunks to keep before the least recently used is
+	 *            dropped
+	 */
+	public ChunkedGridWorld(GridGraphBuilder terrain, int chunkSize, int maxChunks) {
+		if (chunkSize < 1 || maxChunks < 1) {
+			throw new IllegalArgumentException("chunk size and count must be positive");
+		}
+
+		this.terrain = terrain;
+		this.chunkSize = chunkSize;
+		this.chunks = new LinkedHashMap<Long, Chunk>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+				if (this.size() > maxChunks) {
+					ChunkedGridWorld.this.evicted++;
+					return true;
+				}
+
+				return false;
+			}
+
+		};
+	}
+
+	/**
+	 * @param x
+	 *            Column of the tile
+	 * @param y
+	 *            Row of the tile
+	 * @return The node for the tile, which may be anywhere in the world
+	 */
+	public ChunkedGridNode node(int x, int y) {
+		return new ChunkedGridNode(this, x, y);
+	}
+
+	/**
+	 * @param x
+	 *            Column of the tile
+	 * @param y
+	 *            Row of the tile
+	 * @return The height of the tile
+	 */
+	public double getHeight(int x, int y) {
+		Chunk chunk = this.chunk(x, y);
+		return chunk.heights[chunk.index(x, y)];
+	}
+
+	// copies the costs of moving from the tile in every direction, where
+	// directions index GridGraphBuilder.NEIGHBOR_COLS and NEIGHBOR_ROWS, with
+	// one chunk lookup for all of them
+	void getCosts(int x, int y, double[] costs) {
+		Chunk chunk = this.chunk(x, y);
+		System.arraycopy(chunk.costs, chunk.index(x, y) * DIRECTIONS, costs, 0, DIRECTIONS);
+	}
+
+	/**
+	 * @return The number of chunks currently kept
+	 */
+	public synchronized int getLoadedChunks() {
+		return this.chunks.size();
+	}
+
+	/**
+	 * @return The number of times a chunk has been generated, including
+	 *         chunks generated again after being dropped
+	 */
+	public synchronized long getGeneratedChunks() {
+		return this.generated;
+	}
+
+	/**
+	 * @return The number of times a chunk has been dropped
+	 */
+	public synchronized long getEvictedChunks() {
+		return this.evicted;
+	}
+
+	private Chunk chunk(int x, int y) {
+		int chunkX = Math.floorDiv(x, this.chunkSize);
+		int chunkY = Math.floorDiv(y, this.chunkSize);
+		Long key = ((long) chunkX << 32) | (chunkY & 0xFFFFFFFFL);
+
+		Chunk chunk;
+
+		synchronized (this) {
+			chunk = this.chunks.get(key);
+		}
+
+		if (chunk != null) {
+			return chunk;
+		}
+
+		// generated without the lock, then stored unless another thread got
+		// there first
+		Chunk generated = new Chunk(chunkX * this.chunkSize, chunkY * this.chunkSize);
+
+		synchronized (this) {
+			chunk = this.chunks.putIfAbsent(key, generated);
+
+			if (chunk == null) {
+				chunk = generated;
+				this.generated++;
+			}
+		}
+
+		return chunk;
+	}
+
+	// the heights of a chunk's tiles and the costs of moving out of each of
+	// them in every direction
+	private class Chunk {
+
+		private final int x, y;
+		private final double[] heights;
+		private final double[] costs;
+
+		Chunk(int x, int y) {
+			int size = ChunkedGridWorld.this.chunkSize;
+			GridGraphBuilder terrain = ChunkedGridWorld.this.terrain;
+
+			this.x = x;
+			this.y = y;
+			this.heights = new double[size * size];
+			this.costs = new double[size * size * DIRECTIONS];
+
+			// sample a one tile border as well, so costs leading out of the
+			// chunk need nothing from its neighbors
+			double[] samples = new double[(size + 2) * (size + 2)];
+			double[][] border = new double[size + 2][size + 2];
+
+			terrain.heights(samples, x - 1, y - 1, size + 2, size + 2);
+
+			for (int col = 0; col < size + 2; col++) {
+				for (int row = 0; row < size + 2; row++) {
+					border[col][row] = samples[row * (size + 2) + col];
+				}
+			}
+
+			for (int col = 0; col < size; col++) {
+				for (int row = 0; row < size; row++) {
+
+					int index = col * size + row;
+					double height = border[col + 1][row + 1];
+
+					this.heights[index] = height;
+
+					for (int i = 0; i < DIRECTIONS; i++) {
+						double toHeight = border[col + 1 + GridGraphBuilder.NEIGHBOR_COLS[i]][row
+								+ 1 + GridGraphBuilder.NEIGHBOR_ROWS[i]];
+						this.costs[index * DIRECTIONS + i] = terrain.cost(height, toHeight, i >= 4);
+					}
+
+				}
+			}
+		}
+
+		int index(int x, int y) {
+			return (x - this.x) * ChunkedGridWorld.this.chunkSize + y - this.y;
+		}
+
+	}
+
+}
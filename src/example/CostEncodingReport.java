@@ -0,0 +1,56 @@
+package example;
+
+import astar.graph.ArrayGraph;
+import astar.graph.ByteCostGraph;
+import astar.graph.CostErrorReport;
+import astar.graph.DoubleCostGraph;
+import astar.graph.FloatCostGraph;
+import astar.graph.ShortCostGraph;
+
+/**
+ * Builds the demo terrain as an array graph and reports the memory used and
+ * the path cost error introduced by each compact cost encoding.
+ *
+ * <p>
+ * Usage: {@code CostEncodingReport [tiles] [seed] [queries]}
+ * </p>
+ */
+public class CostEncodingReport {
+
+	private static final double HEIGHT_WEIGHT = 50;
+	private static final int OCTAVES = 3;
+	private static final double AMPLITUDE = 5;
+	private static final double FREQUENCY = 0.35;
+
+	public static void main(String[] args) {
+		int tiles = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+		int queries = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+
+		DoubleCostGraph reference =
+				new GridGraphBuilder(seed, OCTAVES, FREQUENCY, AMPLITUDE, HEIGHT_WEIGHT)
+						.buildGraph(tiles, tiles, null);
+
+		print("double", reference, null);
+
+		ArrayGraph[] compact = {FloatCostGraph.of(reference), ShortCostGraph.of(reference),
+				ByteCostGraph.of(reference)};
+		String[] names = {"float", "16-bit", "8-bit"};
+
+		for (int i = 0; i < compact.length; i++) {
+			print(names[i], compact[i],
+					CostErrorReport.compare(reference, compact[i], queries, seed));
+		}
+	}
+
+	private static void print(String name, ArrayGraph graph, CostErrorReport report) {
+		System.out.printf("%s: %d bytes%n", name, graph.getSizeInBytes());
+
+		if (report != null) {
+			System.out.println(report);
+		}
+
+		System.out.println();
+	}
+
+}
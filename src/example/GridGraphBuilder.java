@@ -0,0 +1,563 @@
+package example;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import astar.Edge;
+import astar.graph.DoubleCostGraph;
+import example.noise.CachedNoise;
+import example.noise.NoiseGenerator;
+import example.noise.NoiseTileCache;
+import example.noise.PerlinNoiseGenerator;
+
+/**
+ * Builds the demo terrain: a grid of tiles whose heights are sampled from
+ * octave noise, where each tile connects to its eight neighbors with a cost
+ * of the distance between them plus their difference in height times a
+ * weight.
+ *
+ * <p>
+ * The grid is split into square blocks that are built in parallel on a
+ * fork/join pool. Each block samples its own heights plus a one tile border,
+ * so it can add its edges without waiting for its neighbors, and a listener
+ * is told as soon as each block is done. Every height is a function of the
+ * tile's coordinates alone, so the result for a given seed does not depend on
+ * the number of threads or the order blocks finish in.
+ * </p>
+ */
+public class GridGraphBuilder {
+
+	/**
+	 * Told about each block of tiles as soon as it is built.
+	 */
+	public interface ITileListener {
+
+		/**
+		 * Called from the thread that built the block.
+		 *
+		 * @param col
+		 *            Column of the first tile in the block
+		 * @param row
+		 *            Row of the first tile in the block
+		 * @param width
+		 *            Number of columns in the block
+		 * @param height
+		 *            Number of rows in the block
+		 */
+		void tileBuilt(int col, int row, int width, int height);
+
+	}
+
+	// builds one block of tiles
+	private interface IBlockTask {
+
+		void build(int col, int row, int width, int height);
+
+	}
+
+	private static final double ROOT2 = Math.sqrt(2.0); // diagonal distance
+														// between two tiles
+
+	// neighbor offsets, in the order the demo has always added connections,
+	// where the last four are diagonal
+	static final int[] NEIGHBOR_COLS = {1, 0, -1, 0, 1, -1, -1, 1};
+	static final int[] NEIGHBOR_ROWS = {0, 1, 0, -1, 1, 1, -1, -1};
+
+	private final NoiseGenerator noise;
+	private final int octaves;
+	private final double frequency;
+	private final double amplitude;
+	private final double heightWeight;
+
+	private int tileSize = 32;
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+	private CachedNoise cached;
+	private MappedHeightmap heightmap;
+
+	/**
+	 * Creates a builder that samples seeded perlin noise.
+	 *
+	 * @param seed
+	 *            Seed of the noise generator
+	 * @param octaves
+	 *            Number of octaves to sample
+	 * @param frequency
+	 *            How much to alter the frequency by each octave
+	 * @param amplitude
+	 *            How much to alter the amplitude by each octave
+	 * @param heightWeight
+	 *            Cost of climbing or descending the full height range
+	 */
+	public GridGraphBuilder(long seed, int octaves, double frequency, double amplitude,
+			double heightWeight) {
+		this(new PerlinNoiseGenerator(seed), octaves, frequency, amplitude, heightWeight);
+	}
+
+	/**
+	 * Creates a builder that samples the given noise generator, which must be
+	 * safe to call from several threads at once.
+	 *
+	 * @param noise
+	 *            Generator to sample heights from
+	 * @param octaves
+	 *            Number of octaves to sample
+	 * @param frequency
+	 *            How much to alter the frequency by each octave
+	 * @param amplitude
+	 *            How much to alter the amplitude by each octave
+	 * @param heightWeight
+	 *            Cost of climbing or descending the full height range
+	 */
+	public GridGraphBuilder(NoiseGenerator noise, int octaves, double frequency,
+			double amplitude, double heightWeight) {
+		this.noise = noise;
+		this.octaves = octaves;
+		this.frequency = frequency;
+		this.amplitude = amplitude;
+		this.heightWeight = heightWeight;
+	}
+
+	/**
+	 * Sets the width and height of the square blocks built as one task.
+	 *
+	 * @param tileSize
+	 *            Number of tiles along each side of a block
+	 */
+	public void setTileSize(int tileSize) {
+		if (tileSize < 1) {
+			throw new IllegalArgumentException("tile size must be positive: " + tileSize);
+		}
+
+		this.tileSize = tileSize;
+	}
+
+	/**
+	 * Sets the pool that builds the blocks.
+	 *
+	 * @param pool
+	 *            Pool to build with
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Keeps the sampled heights in a cache, so that building the same area
+	 * again, or sampling it with {@link #height(int, int)}, reads them back
+	 * instead of sampling the noise.
+	 *
+	 * @param cache
+	 *            Cache to keep heights in, or null to sample every time
+	 * @param seed
+	 *            Seed of the noise generator, which tells its tiles apart
+	 *            from those of other generators sharing the cache
+	 */
+	public void setCache(NoiseTileCache cache, long seed) {
+		this.cached = cache == null ? null
+				: new CachedNoise(this.noise, seed, this.octaves, this.frequency,
+						this.amplitude, true, cache);
+	}
+
+	/**
+	 * Reads the heights of tiles on a saved heightmap from the mapped file
+	 * instead of sampling the noise. Heights are saved as floats, so costs
+	 * differ slightly from those of sampled heights; tiles off the map are
+	 * still sampled.
+	 *
+	 * @param heightmap
+	 *            Heightmap generated from this builder's noise, or null to
+	 *            sample every height
+	 */
+	public void setHeightmap(MappedHeightmap heightmap) {
+		this.heightmap = heightmap;
+	}
+
+	/**
+	 * @return The generator heights are sampled from
+	 */
+	public NoiseGenerator getNoise() {
+		return this.noise;
+	}
+
+	/**
+	 * @return The number of octaves sampled
+	 */
+	public int getOctaves() {
+		return this.octaves;
+	}
+
+	/**
+	 * @return How much the frequency is altered by each octave
+	 */
+	public double getFrequency() {
+		return this.frequency;
+	}
+
+	/**
+	 * @return How much the amplitude is altered by each octave
+	 */
+	public double getAmplitude() {
+		return this.amplitude;
+	}
+
+	/**
+	 * Computes the height of a single tile.
+	 *
+	 * @param col
+	 *            Column of the tile
+	 * @param row
+	 *            Row of the tile
+	 * @return Height of the tile, from 0 to 1
+	 */
+	public double height(int col, int row) {
+		if (this.heightmap != null && this.heightmap.contains(col, row)) {
+			return this.heightmap.getHeight(col, row);
+		}
+
+		if (this.cached != null) {
+			return Math.abs(this.cached.noise(col, row));
+		}
+
+		return Math.abs(this.noise.noise(col, row, this.octaves, this.frequency, this.amplitude,
+				true));
+	}
+
+	/**
+	 * Computes the heights of a rectangle of tiles in one pass, which is
+	 * quicker than calling {@link #height(int, int)} for each and gives the
+	 * same values.
+	 *
+	 * @param out
+	 *            Receives the heights, row by row, so the tile at
+	 *            {@code (col + c, row + r)} ends up at {@code r * width + c}
+	 * @param col
+	 *            Column of the first tile
+	 * @param row
+	 *            Row of the first tile
+	 * @param width
+	 *            Number of columns
+	 * @param height
+	 *            Number of rows
+	 */
+	public void heights(double[] out, int col, int row, int width, int height) {
+		MappedHeightmap heightmap = this.heightmap;
+		boolean mapped = heightmap != null && heightmap.contains(col, row)
+				&& heightmap.contains(col + width - 1, row + height - 1);
+
+		if (!mapped) {
+			if (this.cached != null) {
+				this.cached.fill(out, col, row, width, height);
+			} else {
+				this.noise.fill(out, col, row, width, height, 1, this.octaves, this.frequency,
+						this.amplitude, true);
+			}
+
+			for (int i = 0; i < width * height; i++) {
+				out[i] = Math.abs(out[i]);
+			}
+		}
+
+		if (heightmap != null) {
+			for (int r = 0; r < height; r++) {
+				for (int c = 0; c < width; c++) {
+					if (heightmap.contains(col + c, row + r)) {
+						out[r * width + c] = heightmap.getHeight(col + c, row + r);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Computes the cost of moving between two neighboring tiles.
+	 *
+	 * @param fromHeight
+	 *            Height of the tile moved from
+	 * @param toHeight
+	 *            Height of the tile moved to
+	 * @param diagonal
+	 *            Whether the tiles only share a corner
+	 * @return Cost of the move
+	 */
+	public double cost(double fromHeight, double toHeight, boolean diagonal) {
+		return Math.abs(fromHeight - toHeight) * this.heightWeight + (diagonal ? ROOT2 : 1);
+	}
+
+	/**
+	 * Estimates the costs of moving from a tile to each of its neighbors from
+	 * the slope of the terrain at the tile, rather than from the heights of
+	 * the neighbors. The height difference of a move is taken as the
+	 * gradient of the noise times the move, so the whole tile costs one
+	 * sample with a generator that differentiates its noise analytically,
+	 * such as {@link example.noise.SimplexNoiseGenerator}. The estimate
+	 * differs from {@link #cost(double, double, boolean)} where the terrain
+	 * curves between tiles, so it only suits noise whose features span many
+	 * tiles, and a move may cost something different in each direction.
+	 *
+	 * @param col
+	 *            Column of the tile
+	 * @param row
+	 *            Row of the tile
+	 * @param costs
+	 *            Receives the cost of moving by (1, 0), (0, 1), (-1, 0),
+	 *            (0, -1), (1, 1), (-1, 1), (-1, -1) and (1, -1)
+	 * @return Height of the tile, from 0 to 1
+	 */
+	public double slopeCosts(int col, int row, double[] costs) {
+		double[] gradient = new double[3];
+		double height = Math.abs(this.noise.noiseWithGradient(col, row, 0, this.octaves,
+				this.frequency, this.amplitude, true, gradient));
+
+		for (int i = 0; i < NEIGHBOR_COLS.length; i++) {
+			double climb = gradient[0] * NEIGHBOR_COLS[i] + gradient[1] * NEIGHBOR_ROWS[i];
+			costs[i] = Math.abs(climb) * this.heightWeight + (i >= 4 ? ROOT2 : 1);
+		}
+
+		return height;
+	}
+
+	/**
+	 * Builds a grid of nodes, blocking until it is done.
+	 *
+	 * @param cols
+	 *            Number of columns
+	 * @param rows
+	 *            Number of rows
+	 * @return The built terrain
+	 */
+	public GridTerrain build(int cols, int rows) {
+		return this.buildAsync(cols, rows, null).await();
+	}
+
+	/**
+	 * Starts building a grid of nodes and returns at once. The listener is
+	 * told about each block of tiles as it is finished.
+	 *
+	 * @param cols
+	 *            Number of columns
+	 * @param rows
+	 *            Number of rows
+	 * @param listener
+	 *            Told about each finished block, may be null
+	 * @return The terrain being built
+	 */
+	public GridTerrain buildAsync(int cols, int rows, ITileListener listener) {
+		GridNode[][] grid = new GridNode[cols][rows];
+		double[][] heights = new double[cols][rows];
+
+		for (int col = 0; col < cols; col++) {
+			for (int row = 0; row < rows; row++) {
+				grid[col][row] = new GridNode(col, row);
+			}
+		}
+
+		GridTerrain terrain = new GridTerrain(grid, heights, this.tileSize);
+
+		this.forEachBlock(cols, rows, (col, row, width, height) -> {
+
+			double[][] block = this.sampleBlock(col, row, width, height, cols, rows);
+			List<List<Edge<GridNode>>> edges = new ArrayList<List<Edge<GridNode>>>(width * height);
+
+			// the edges are collected here and only handed to the nodes once
+			// the whole block is done, so a search that reaches a node of an
+			// unbuilt block finds no edges rather than a list being filled
+			for (int c = 0; c < width; c++) {
+				for (int r = 0; r < height; r++) {
+
+					List<Edge<GridNode>> nodeEdges = new ArrayList<Edge<GridNode>>(NEIGHBOR_COLS.length);
+					double nodeHeight = block[c + 1][r + 1];
+
+					heights[col + c][row + r] = nodeHeight;
+
+					for (int i = 0; i < NEIGHBOR_COLS.length; i++) {
+
+						int toCol = col + c + NEIGHBOR_COLS[i];
+						int toRow = row + r + NEIGHBOR_ROWS[i];
+
+						if (toCol >= 0 && toCol < cols && toRow >= 0 && toRow < rows) {
+							double toHeight = block[c + 1 + NEIGHBOR_COLS[i]][r + 1 + NEIGHBOR_ROWS[i]];
+							nodeEdges.add(new Edge<GridNode>(grid[toCol][toRow],
+									this.cost(nodeHeight, toHeight, i >= 4)));
+						}
+
+					}
+
+					edges.add(nodeEdges);
+
+				}
+			}
+
+			for (int c = 0; c < width; c++) {
+				for (int r = 0; r < height; r++) {
+					grid[col + c][row + r].publishEdges(edges.get(c * height + r));
+				}
+			}
+
+			terrain.markBuilt(col, row);
+
+			if (listener != null) {
+				listener.tileBuilt(col, row, width, height);
+			}
+
+		}, terrain.getDone());
+
+		return terrain;
+	}
+
+	/**
+	 * Builds the terrain as an array graph, where node {@code col * rows + row}
+	 * stands for the tile at {@code (col, row)}. Blocks until it is done.
+	 *
+	 * @param cols
+	 *            Number of columns
+	 * @param rows
+	 *            Number of rows
+	 * @param listener
+	 *            Told about each finished block, may be null
+	 * @return The built graph
+	 */
+	public DoubleCostGraph buildGraph(int cols, int rows, ITileListener listener) {
+		int[] offsets = new int[cols * rows + 1];
+
+		// every node's degree is known from its position, so the offsets can
+		// be laid out before any block is built
+		for (int col = 0; col < cols; col++) {
+			for (int row = 0; row < rows; row++) {
+				int node = col * rows + row;
+				offsets[node + 1] = offsets[node] + degree(col, row, cols, rows);
+			}
+		}
+
+		int[] targets = new int[offsets[cols * rows]];
+		double[] costs = new double[targets.length];
+		CompletableFuture<Void> done = new CompletableFuture<Void>();
+
+		this.forEachBlock(cols, rows, (col, row, width, height) -> {
+
+			double[][] block = this.sampleBlock(col, row, width, height, cols, rows);
+
+			for (int c = 0; c < width; c++) {
+				for (int r = 0; r < height; r++) {
+
+					int edge = offsets[(col + c) * rows + row + r];
+					double nodeHeight = block[c + 1][r + 1];
+
+					for (int i = 0; i < NEIGHBOR_COLS.length; i++) {
+
+						int toCol = col + c + NEIGHBOR_COLS[i];
+						int toRow = row + r + NEIGHBOR_ROWS[i];
+
+						if (toCol >= 0 && toCol < cols && toRow >= 0 && toRow < rows) {
+							double toHeight = block[c + 1 + NEIGHBOR_COLS[i]][r + 1 + NEIGHBOR_ROWS[i]];
+							targets[edge] = toCol * rows + toRow;
+							costs[edge] = this.cost(nodeHeight, toHeight, i >= 4);
+							edge++;
+						}
+
+					}
+
+				}
+			}
+
+			if (listener != null) {
+				listener.tileBuilt(col, row, width, height);
+			}
+
+		}, done);
+
+		done.join();
+
+		return new DoubleCostGraph(offsets, targets, costs);
+	}
+
+	// samples the heights of a block and the one tile border around it,
+	// indexed from the border, leaving tiles outside the grid at zero
+	private double[][] sampleBlock(int col, int row, int width, int height, int cols, int rows) {
+		double[][] block = new double[width + 2][height + 2];
+		double[] samples = new double[(width + 2) * (height + 2)];
+
+		this.heights(samples, col - 1, row - 1, width + 2, height + 2);
+
+		for (int c = -1; c <= width; c++) {
+			for (int r = -1; r <= height; r++) {
+
+				int sampleCol = col + c;
+				int sampleRow = row + r;
+
+				if (sampleCol >= 0 && sampleCol < cols && sampleRow >= 0 && sampleRow < rows) {
+					block[c + 1][r + 1] = samples[(r + 1) * (width + 2) + c + 1];
+				}
+
+			}
+		}
+
+		return block;
+	}
+
+	private static int degree(int col, int row, int cols, int rows) {
+		int degree = 0;
+
+		for (int i = 0; i < NEIGHBOR_COLS.length; i++) {
+
+			int toCol = col + NEIGHBOR_COLS[i];
+			int toRow = row + NEIGHBOR_ROWS[i];
+
+			if (toCol >= 0 && toCol < cols && toRow >= 0 && toRow < rows) {
+				degree++;
+			}
+
+		}
+
+		return degree;
+	}
+
+	// submits one task per block of tiles, completing done once all have run
+	private void forEachBlock(int cols, int rows, IBlockTask work, CompletableFuture<Void> done) {
+		int size = this.tileSize;
+
+		this.pool.execute(new RecursiveAction() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				List<RecursiveAction> blocks = new ArrayList<RecursiveAction>();
+
+				for (int row = 0; row < rows; row += size) {
+					for (int col = 0; col < cols; col += size) {
+
+						int blockCol = col;
+						int blockRow = row;
+						int width = Math.min(size, cols - col);
+						int height = Math.min(size, rows - row);
+
+						blocks.add(new RecursiveAction() {
+
+							private static final long serialVersionUID = 1L;
+
+							@Override
+							protected void compute() {
+								work.build(blockCol, blockRow, width, height);
+							}
+
+						});
+
+					}
+				}
+
+				try {
+					invokeAll(blocks);
+					done.complete(null);
+				} catch (RuntimeException | Error e) {
+					done.completeExceptionally(e);
+					throw e;
+				}
+			}
+
+		});
+	}
+
+}
@@ -11,7 +11,10 @@ import astar.INode;
 public class GridNode implements INode<GridNode> {
 
 	public final int x, y;
-	private final List<Edge<GridNode>> connections = new ArrayList<Edge<GridNode>>();
+
+	// replaced rather than added to once the node may be shared, so that
+	// readers on other threads see either no edges or all of them
+	private volatile List<Edge<GridNode>> connections = new ArrayList<Edge<GridNode>>();
 
 	public GridNode(int x, int y) {
 		this.x = x;
@@ -35,6 +38,11 @@ public class GridNode implements INode<GridNode> {
 		this.connections.add(new Edge<GridNode>(to, cost));
 	}
 
+	// hands this node its finished edges, after which they must not change
+	void publishEdges(List<Edge<GridNode>> edges) {
+		this.connections = edges;
+	}
+
 	// gets the cost from this node to the given neighbor
 	// returns -1 if given neighbor is not actually a neighbor
 	public double getCostTo(GridNode neighbor) {
@@ -0,0 +1,107 @@
+package example;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A grid of tiles built by {@link GridGraphBuilder}, along with the height of
+ * each tile.
+ *
+ * <p>
+ * The grid may still be under construction. The nodes in a tile have no
+ * edges until the tile is built, when they are given all of them at once, so
+ * a search started early simply cannot leave the built tiles. Heights should
+ * only be read for tiles for which {@link #isBuilt(int, int)} is true.
+ * </p>
+ */
+public class GridTerrain {
+
+	private final GridNode[][] grid;
+	private final double[][] heights;
+	private final int tileSize;
+	private final int tileRows;
+	private final AtomicIntegerArray builtTiles;
+	private final CompletableFuture<Void> done = new CompletableFuture<Void>();
+
+	GridTerrain(GridNode[][] grid, double[][] heights, int tileSize) {
+		this.grid = grid;
+		this.heights = heights;
+		this.tileSize = tileSize;
+
+		int tileCols = (this.getCols() + tileSize - 1) / tileSize;
+		this.tileRows = (this.getRows() + tileSize - 1) / tileSize;
+		this.builtTiles = new AtomicIntegerArray(tileCols * this.tileRows);
+	}
+
+	// completed by the builder once every tile is built
+	CompletableFuture<Void> getDone() {
+		return this.done;
+	}
+
+	// marks the tile containing the given tile coordinates as built, after
+	// which its nodes and heights are safe to read from any thread
+	void markBuilt(int col, int row) {
+		this.builtTiles.set(this.tileIndex(col, row), 1);
+	}
+
+	/**
+	 * Blocks until every tile is built.
+	 *
+	 * @return This terrain
+	 */
+	public GridTerrain await() {
+		this.done.join();
+		return this;
+	}
+
+	/**
+	 * @return Whether every tile is built
+	 */
+	public boolean isDone() {
+		return this.done.isDone();
+	}
+
+	/**
+	 * @param col
+	 *            Column of a tile
+	 * @param row
+	 *            Row of a tile
+	 * @return Whether the height and edges of the tile are ready
+	 */
+	public boolean isBuilt(int col, int row) {
+		return this.builtTiles.get(this.tileIndex(col, row)) != 0;
+	}
+
+	/**
+	 * @return The nodes, indexed by column then row
+	 */
+	public GridNode[][] getGrid() {
+		return this.grid;
+	}
+
+	/**
+	 * @return The heights of the tiles, indexed by column then row
+	 */
+	public double[][] getHeights() {
+		return this.heights;
+	}
+
+	/**
+	 * @return The number of columns
+	 */
+	public int getCols() {
+		return this.grid.length;
+	}
+
+	/**
+	 * @return The number of rows
+	 */
+	public int getRows() {
+		return this.grid.length == 0 ? 0 : this.grid[0].length;
+	}
+
+	private int tileIndex(int col, int row) {
+		return col / this.tileSize * this.tileRows + row / this.tileSize;
+	}
+
+}
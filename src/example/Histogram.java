@@ -0,0 +1,118 @@
+package example;
+
+/**
+ * Counts non-negative long values in buckets whose width grows with the
+ * value, so that any percentile can be read back to within 1/64 of its true
+ * value whatever the range recorded, in a fixed 30KB of counts.
+ *
+ * <p>
+ * Values below 128 have a bucket each. Above that, each power of two is split
+ * into 64 equal buckets. Percentiles report the largest value of the bucket
+ * they fall in. A histogram is not safe to share between threads; record into
+ * one per thread and {@link #add(Histogram)} them together afterwards.
+ * </p>
+ */
+public class Histogram {
+
+	private static final int SUB_BUCKET_BITS = 6;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private final long[] counts = new long[(64 - SUB_BUCKET_BITS) * SUB_BUCKETS];
+	private long count;
+	private long max;
+	private double sum;
+
+	/**
+	 * Counts one value.
+	 *
+	 * @param value
+	 *            The value to count, at least 0
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("value must not be negative: " + value);
+		}
+
+		this.counts[index(value)]++;
+		this.count++;
+		this.max = Math.max(this.max, value);
+		this.sum += value;
+	}
+
+	/**
+	 * Adds the counts of another histogram to this one.
+	 *
+	 * @param other
+	 *            The histogram to add
+	 */
+	public void add(Histogram other) {
+		for (int i = 0; i < this.counts.length; i++) {
+			this.counts[i] += other.counts[i];
+		}
+
+		this.count += other.count;
+		this.max = Math.max(this.max, other.max);
+		this.sum += other.sum;
+	}
+
+	/**
+	 * @return The number of values counted
+	 */
+	public long getCount() {
+		return this.count;
+	}
+
+	/**
+	 * @return The largest value counted, exactly, or 0 if none
+	 */
+	public long getMax() {
+		return this.max;
+	}
+
+	/**
+	 * @return The mean of the values counted, exactly, or 0 if none
+	 */
+	public double getMean() {
+		return this.count == 0 ? 0 : this.sum / this.count;
+	}
+
+	/**
+	 * @param percentile
+	 *            The percentile to report, from 0 to 100
+	 * @return The value at or below which the given percentage of the values
+	 *         counted fall, or 0 if none
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (this.count == 0) {
+			return 0;
+		}
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * this.count));
+		long seen = 0;
+
+		for (int i = 0; i < this.counts.length; i++) {
+			seen += this.counts[i];
+
+			if (seen >= rank) {
+				return Math.min(highest(i), this.max);
+			}
+		}
+
+		return this.max;
+	}
+
+	// values below 2 * SUB_BUCKETS index themselves; above, the bits below the
+	// top SUB_BUCKET_BITS + 1 are dropped and the shift picks the power of two
+	private static int index(long value) {
+		int shift = Math.max(0, 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+		return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+	}
+
+	// the largest value that falls in the given bucket
+	private static long highest(int index) {
+		int shift = Math.max(0, (index >>> SUB_BUCKET_BITS) - 1);
+		long mantissa = index - ((long) shift << SUB_BUCKET_BITS);
+		return ((mantissa + 1) << shift) - 1;
+	}
+
+}
@@ -0,0 +1,396 @@
+package example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import astar.graph.MappedRegion;
+
+/**
+ * The heights of a grid of tiles saved as floats in a memory-mapped file, so
+ * that a later run can map them instead of sampling the noise again. The
+ * file records the seed and noise parameters it was generated from, and
+ * {@link #load(Path, GridGraphBuilder, long, int, int, boolean)} keeps one
+ * file per set of them in a directory, generating it the first time.
+ *
+ * <p>
+ * Heights are laid out either row by row, or in square tiles of 32 by 32
+ * whose order follows a Z-order curve, so tiles that are close on the map
+ * are usually close in the file and a search touches fewer pages.
+ * </p>
+ *
+ * <p>
+ * All values are little-endian. The layout is:
+ * </p>
+ *
+ * <pre>
+ * header, 64 bytes
+ *   0  int     magic, 0x50414D48
+ *   4  int     version, 1
+ *   8  int     flags, 1 if heights are in Z-ordered tiles
+ *   12 int     tile size T
+ *   16 long    seed
+ *   24 int     octaves
+ *   28 int     hash code of the noise generator's class name
+ *   32 double  frequency
+ *   40 double  amplitude
+ *   48 int     columns C
+ *   52 int     rows R
+ *   56 long    reserved, 0
+ * heights
+ *   row by row  C * R floats, the tile at (col, row) at row * C + col
+ *   in tiles    one T * T block of floats per tile, row by row within it,
+ *               with blocks sorted by the Z-order of their position, and
+ *               tiles past the edge of the grid filled in as well
+ * </pre>
+ */
+public class MappedHeightmap implements Closeable {
+
+	private static final int MAGIC = 0x50414D48;
+	private static final int VERSION = 1;
+	private static final int HEADER_SIZE = 64;
+	private static final int Z_ORDER = 1;
+	private static final int TILE_SIZE = 32;
+
+	private final FileChannel channel;
+	private final MappedRegion heights;
+	private final boolean zOrder;
+	private final int tileSize;
+	private final long seed;
+	private final int octaves;
+	private final int noiseHash;
+	private final double frequency;
+	private final double amplitude;
+	private final int cols;
+	private final int rows;
+	private final int tileRows;
+	private final int[] tileSlots;
+
+	private MappedHeightmap(FileChannel channel) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+		while (header.hasRemaining()) {
+			if (channel.read(header, header.position()) < 0) {
+				throw new IOException("heightmap header is truncated");
+			}
+		}
+
+		if (header.getInt(0) != MAGIC) {
+			throw new IOException("not a heightmap");
+		}
+
+		if (header.getInt(4) != VERSION) {
+			throw new IOException("unsupported heightmap version: " + header.getInt(4));
+		}
+
+		this.channel = channel;
+		this.zOrder = (header.getInt(8) & Z_ORDER) != 0;
+		this.tileSize = header.getInt(12);
+		this.seed = header.getLong(16);
+		this.octaves = header.getInt(24);
+		this.noiseHash = header.getInt(28);
+		this.frequency = header.getDouble(32);
+		this.amplitude = header.getDouble(40);
+		this.cols = header.getInt(48);
+		this.rows = header.getInt(52);
+
+		int tileCols = (this.cols + this.tileSize - 1) / this.tileSize;
+		this.tileRows = (this.rows + this.tileSize - 1) / this.tileSize;
+		this.tileSlots = this.zOrder ? tileSlots(tileCols, this.tileRows) : null;
+
+		long count = this.zOrder ? (long) tileCols * this.tileRows * this.tileSize * this.tileSize
+				: (long) this.cols * this.rows;
+
+		if (channel.size() < HEADER_SIZE + 4 * count) {
+			throw new IOException("heightmap is truncated");
+		}
+
+		this.heights = new MappedRegion(channel, HEADER_SIZE, 4 * count);
+	}
+
+	/**
+	 *
+	 * Maps a heightmap file.
+	 *
+	 * @param file
+	 *            The file to map
+	 * @return The mapped heightmap
+	 * @throws IOException
+	 *             If the file cannot be read or is not a heightmap
+	 */
+	public static MappedHeightmap open(Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+
+		try {
+			return new MappedHeightmap(channel);
+		} catch (IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 *
+	 * Maps the heightmap for the given terrain from a directory, generating
+	 * and saving it first if the directory does not hold it yet. Each seed,
+	 * set of noise parameters, size and layout has its own file.
+	 *
+	 * @param directory
+	 *            The directory to keep heightmaps in
+	 * @param terrain
+	 *            Samples the heights
+	 * @param seed
+	 *            Seed of the terrain's noise generator
+	 * @param cols
+	 *            Number of columns
+	 * @param rows
+	 *            Number of rows
+	 * @param zOrder
+	 *            Whether to lay heights out in Z-ordered tiles rather than
+	 *            row by row
+	 * @return The mapped heightmap
+	 * @throws IOException
+	 *             If the heightmap cannot be read or written
+	 */
+	public static MappedHeightmap load(Path directory, GridGraphBuilder terrain, long seed,
+			int cols, int rows, boolean zOrder) throws IOException {
+		long key = Arrays.hashCode(new long[] {seed, terrain.getOctaves(),
+				Double.doubleToLongBits(terrain.getFrequency()),
+				Double.doubleToLongBits(terrain.getAmplitude()), cols, rows, zOrder ? 1 : 0});
+		key = key << 32 | (terrain.getNoise().getClass().getName().hashCode() & 0xFFFFFFFFL);
+
+		Path file = directory.resolve(String.format("heights-%016x.bin", key));
+
+		if (Files.exists(file)) {
+			MappedHeightmap heightmap = open(file);
+
+			if (heightmap.matches(terrain, seed, cols, rows)) {
+				return heightmap;
+			}
+
+			heightmap.close();
+		}
+
+		// written beside the final file and moved into place, so that a run
+		// stopped partway never leaves a heightmap that looks complete
+		Path temporary = Files.createTempFile(directory, "heights-", ".tmp");
+
+		try {
+			write(terrain, seed, cols, rows, zOrder, temporary);
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+
+		return open(file);
+	}
+
+	/**
+	 *
+	 * Samples the heights of a grid and writes them as a heightmap.
+	 *
+	 * @param terrain
+	 *            Samples the heights
+	 * @param seed
+	 *            Seed of the terrain's noise generator, recorded in the file
+	 * @param cols
+	 *            Number of columns
+	 * @param rows
+	 *            Number of rows
+	 * @param zOrder
+	 *            Whether to lay heights out in Z-ordered tiles rather than
+	 *            row by row
+	 * @param file
+	 *            The file to create or replace
+	 * @throws IOException
+	 *             If the file cannot be written
+	 */
+	public static void write(GridGraphBuilder terrain, long seed, int cols, int rows,
+			boolean zOrder, Path file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(zOrder ? Z_ORDER : 0);
+			header.putInt(TILE_SIZE);
+			header.putLong(seed);
+			header.putInt(terrain.getOctaves());
+			header.putInt(terrain.getNoise().getClass().getName().hashCode());
+			header.putDouble(terrain.getFrequency());
+			header.putDouble(terrain.getAmplitude());
+			header.putInt(cols);
+			header.putInt(rows);
+			header.putLong(0);
+			header.flip();
+			write(channel, header);
+
+			if (zOrder) {
+				int tileCols = (cols + TILE_SIZE - 1) / TILE_SIZE;
+				int tileRows = (rows + TILE_SIZE - 1) / TILE_SIZE;
+				int[] slots = tileSlots(tileCols, tileRows);
+				int[] tiles = new int[slots.length];
+				double[] heights = new double[TILE_SIZE * TILE_SIZE];
+
+				for (int tile = 0; tile < slots.length; tile++) {
+					tiles[slots[tile]] = tile;
+				}
+
+				for (int tile : tiles) {
+					terrain.heights(heights, tile / tileRows * TILE_SIZE,
+							tile % tileRows * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+					write(channel, heights, heights.length);
+				}
+			} else {
+				double[] heights = new double[cols * TILE_SIZE];
+
+				for (int row = 0; row < rows; row += TILE_SIZE) {
+					int height = Math.min(TILE_SIZE, rows - row);
+
+					terrain.heights(heights, 0, row, cols, height);
+					write(channel, heights, cols * height);
+				}
+			}
+
+		}
+	}
+
+	private static void write(FileChannel channel, double[] heights, int count)
+			throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(4 * count).order(ByteOrder.LITTLE_ENDIAN);
+
+		for (int i = 0; i < count; i++) {
+			buffer.putFloat((float) heights[i]);
+		}
+
+		buffer.flip();
+		write(channel, buffer);
+	}
+
+	private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	// the position in the file of each tile, indexed by tile column times
+	// tile rows plus tile row, in the Z-order of the tiles
+	private static int[] tileSlots(int tileCols, int tileRows) {
+		int count = tileCols * tileRows;
+		long[] codes = new long[count];
+
+		for (int tile = 0; tile < count; tile++) {
+			long code = spread(tile / tileRows) | spread(tile % tileRows) << 1;
+			codes[tile] = code << 32 | tile;
+		}
+
+		Arrays.sort(codes);
+
+		int[] slots = new int[count];
+
+		for (int slot = 0; slot < count; slot++) {
+			slots[(int) codes[slot]] = slot;
+		}
+
+		return slots;
+	}
+
+	// spreads the low 16 bits of a value out to the even bits
+	private static long spread(int value) {
+		long bits = value & 0xFFFF;
+		bits = (bits | bits << 8) & 0x00FF00FFL;
+		bits = (bits | bits << 4) & 0x0F0F0F0FL;
+		bits = (bits | bits << 2) & 0x33333333L;
+		return (bits | bits << 1) & 0x55555555L;
+	}
+
+	/**
+	 * @param terrain
+	 *            Samples the heights
+	 * @param seed
+	 *            Seed of the terrain's noise generator
+	 * @param cols
+	 *            Number of columns
+	 * @param rows
+	 *            Number of rows
+	 * @return Whether this heightmap was generated from the same noise and
+	 *         covers the same grid
+	 */
+	public boolean matches(GridGraphBuilder terrain, long seed, int cols, int rows) {
+		return this.seed == seed && this.octaves == terrain.getOctaves()
+				&& this.noiseHash == terrain.getNoise().getClass().getName().hashCode()
+				&& Double.compare(this.frequency, terrain.getFrequency()) == 0
+				&& Double.compare(this.amplitude, terrain.getAmplitude()) == 0
+				&& this.cols == cols && this.rows == rows;
+	}
+
+	/**
+	 * @return The number of columns
+	 */
+	public int getCols() {
+		return this.cols;
+	}
+
+	/**
+	 * @return The number of rows
+	 */
+	public int getRows() {
+		return this.rows;
+	}
+
+	/**
+	 * @return Whether heights are laid out in Z-ordered tiles
+	 */
+	public boolean isZOrder() {
+		return this.zOrder;
+	}
+
+	/**
+	 * @param col
+	 *            Column of a tile
+	 * @param row
+	 *            Row of a tile
+	 * @return Whether the tile is on the map
+	 */
+	public boolean contains(int col, int row) {
+		return col >= 0 && col < this.cols && row >= 0 && row < this.rows;
+	}
+
+	/**
+	 * @param col
+	 *            Column of a tile on the map
+	 * @param row
+	 *            Row of a tile on the map
+	 * @return The height of the tile
+	 */
+	public float getHeight(int col, int row) {
+		if (!this.zOrder) {
+			return this.heights.getFloat(4 * ((long) row * this.cols + col));
+		}
+
+		int size = this.tileSize;
+		long slot = this.tileSlots[col / size * this.tileRows + row / size];
+
+		return this.heights.getFloat(4 * ((slot * size + row % size) * size + col % size));
+	}
+
+	/**
+	 * Closes the file. The mapping itself is released once the heightmap is
+	 * garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+
+}
@@ -0,0 +1,134 @@
+package example;
+
+import java.util.Random;
+
+import astar.graph.DoubleCostGraph;
+import astar.graph.IGraph;
+import astar.graph.Isochrone;
+import astar.graph.NodeOrder;
+import astar.graph.ShortestPaths;
+
+/**
+ * Builds the demo terrain as an array graph in its own column order and
+ * renumbered along Morton and Hilbert curves, and times the same searches
+ * over each.
+ *
+ * <p>
+ * Cache misses cannot be counted from Java, so two stand-ins are reported
+ * for each order: the share of edges whose two nodes fall in different 64
+ * byte cache lines of an array of doubles indexed by node, and in different
+ * 4KB pages. Hardware counts can be had by running this under a profiler such
+ * as {@code perf stat -e cache-misses}. Each search is run from the same
+ * tiles in every order, and the sum of the distances found is printed to
+ * show they agree.
+ * </p>
+ *
+ * <p>
+ * Usage: {@code NodeOrderBenchmark [tiles] [queries] [seed]}
+ * </p>
+ */
+public class NodeOrderBenchmark {
+
+	private static final double HEIGHT_WEIGHT = 50;
+	private static final int OCTAVES = 3;
+	private static final double AMPLITUDE = 5;
+	private static final double FREQUENCY = 0.35;
+
+	// doubles per cache line and per page
+	private static final int LINE = 8;
+	private static final int PAGE = 512;
+
+	public static void main(String[] args) {
+		int tiles = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+		DoubleCostGraph columns =
+				new GridGraphBuilder(seed, OCTAVES, FREQUENCY, AMPLITUDE, HEIGHT_WEIGHT)
+						.buildGraph(tiles, tiles, null);
+
+		Random random = new Random(seed);
+		int[] sources = new int[queries];
+		for (int i = 0; i < queries; i++) {
+			sources[i] = random.nextInt(columns.getNodeCount());
+		}
+
+		// an isochrone reaching roughly a tenth of the tiles across
+		double budget = ShortestPaths.distancesFrom(columns, sources[0])[Math.min(
+				columns.getNodeCount() - 1, sources[0] + tiles / 10 * (tiles + 1))];
+
+		int[] identity = new int[columns.getNodeCount()];
+		for (int node = 0; node < identity.length; node++) {
+			identity[node] = node;
+		}
+
+		int[][] orders = {identity, NodeOrder.morton(tiles, tiles),
+				NodeOrder.hilbert(tiles, tiles)};
+		String[] names = {"column", "morton", "hilbert"};
+
+		for (int i = 0; i < orders.length; i++) {
+			IGraph graph = i == 0 ? columns : NodeOrder.relabel(columns, orders[i]);
+			int[] mapped = new int[queries];
+
+			for (int q = 0; q < queries; q++) {
+				mapped[q] = orders[i][sources[q]];
+			}
+
+			// once untimed, so the JIT has compiled the searches
+			run(graph, mapped, budget);
+			print(names[i], graph, run(graph, mapped, budget), queries);
+		}
+	}
+
+	// returns the nanoseconds taken by all full searches, then by all
+	// isochrones, then the sum of the distances found
+	private static double[] run(IGraph graph, int[] sources, double budget) {
+		double[] distances = new double[graph.getNodeCount()];
+		Isochrone isochrone = new Isochrone(graph);
+		double sum = 0;
+
+		long full = 0;
+
+		for (int source : sources) {
+			long start = System.nanoTime();
+			ShortestPaths.run(graph, source, distances, null);
+			full += System.nanoTime() - start;
+
+			for (double distance : distances) {
+				if (distance != Double.POSITIVE_INFINITY) {
+					sum += distance;
+				}
+			}
+		}
+
+		long start = System.nanoTime();
+
+		for (int source : sources) {
+			isochrone.run(source, budget);
+			sum += isochrone.size();
+		}
+
+		long bounded = System.nanoTime() - start;
+
+		return new double[] {full, bounded, sum};
+	}
+
+	private static void print(String name, IGraph graph, double[] result, int queries) {
+		long lines = 0;
+		long pages = 0;
+
+		for (int node = 0; node < graph.getNodeCount(); node++) {
+			for (long edge = graph.getFirstEdge(node); edge < graph.getEdgeEnd(node); edge++) {
+				int target = graph.getTarget(edge);
+				lines += node / LINE != target / LINE ? 1 : 0;
+				pages += node / PAGE != target / PAGE ? 1 : 0;
+			}
+		}
+
+		System.out.printf("%s: edges across lines %.1f%%, across pages %.1f%%%n", name,
+				100.0 * lines / graph.getEdgeCount(), 100.0 * pages / graph.getEdgeCount());
+		System.out.printf("  dijkstra %.1f ms, isochrone %.2f ms, checksum %.6e%n",
+				result[0] / queries / 1e6, result[1] / queries / 1e6, result[2]);
+	}
+
+}
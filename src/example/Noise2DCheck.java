@@ -0,0 +1,137 @@
+package example;
+
+import java.util.Random;
+
+import example.noise.NoiseGenerator;
+import example.noise.OctaveGenerator;
+import example.noise.PerlinNoiseGenerator;
+import example.noise.PerlinOctaveGenerator;
+import example.noise.SimplexNoiseGenerator;
+import example.noise.SimplexOctaveGenerator;
+
+/**
+ * Checks the 2D noise kernels against the 3D sampling they replace, at
+ * random points.
+ *
+ * <p>
+ * Two things must hold exactly, and are counted as failures if they do not:
+ * Perlin {@code noise2D(x, y)} equals {@code noise(x, y, -offsetZ)} bit for
+ * bit, and {@code fill2D} gives the same values as calling the octave
+ * {@code noise2D} for each point. Everything else is expected to differ, and
+ * the greatest difference from the old {@code noise(x, y)} paths is printed
+ * for each entry point, for both Perlin and simplex noise, so the change to
+ * existing terrains can be judged before switching to the 2D kernels.
+ * </p>
+ *
+ * <p>
+ * Usage: {@code Noise2DCheck [points] [seed]}
+ * </p>
+ */
+public class Noise2DCheck {
+
+	private static final int OCTAVES = 3;
+	private static final double AMPLITUDE = 5;
+	private static final double FREQUENCY = 0.35;
+
+	// side of the grid filled to compare fill2D with fill
+	private static final int SIDE = 256;
+
+	public static void main(String[] args) {
+		int points = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 0;
+
+		Random random = new Random(seed);
+		double[] xs = new double[points];
+		double[] ys = new double[points];
+
+		for (int i = 0; i < points; i++) {
+			xs[i] = (random.nextDouble() - 0.5) * 2000;
+			ys[i] = (random.nextDouble() - 0.5) * 2000;
+		}
+
+		PerlinNoiseGenerator perlin = new PerlinNoiseGenerator(seed);
+		long failures = 0;
+		long slices = 0;
+
+		for (int i = 0; i < points; i++) {
+			if (Double.doubleToLongBits(perlin.noise2D(xs[i], ys[i])) != Double
+					.doubleToLongBits(perlin.noise(xs[i], ys[i], -perlin.getOffsetZ()))) {
+				slices++;
+			}
+		}
+
+		System.out.printf("perlin noise2D(x, y) == noise(x, y, -offsetZ): %d of %d points differ%n",
+				slices, points);
+		failures += slices;
+
+		failures += report("perlin", perlin, new PerlinOctaveGenerator(seed, OCTAVES), xs, ys);
+		failures += report("simplex", new SimplexNoiseGenerator(seed),
+				new SimplexOctaveGenerator(seed, OCTAVES), xs, ys);
+
+		System.out.println(failures == 0 ? "ok" : "FAILED");
+
+		if (failures != 0) {
+			System.exit(1);
+		}
+	}
+
+	// prints the greatest differences between the 2D and old entry points of
+	// a generator, returning the number of points where fill2D does not
+	// match the octave noise2D exactly
+	private static long report(String name, NoiseGenerator noise, OctaveGenerator octaves,
+			double[] xs, double[] ys) {
+		double single = 0;
+		double octave = 0;
+		double generator = 0;
+
+		for (int i = 0; i < xs.length; i++) {
+			double x = xs[i];
+			double y = ys[i];
+
+			single = Math.max(single, Math.abs(noise.noise2D(x, y) - noise.noise(x, y)));
+			octave = Math.max(octave,
+					Math.abs(noise.noise2D(x, y, OCTAVES, FREQUENCY, AMPLITUDE, true)
+							- noise.noise(x, y, OCTAVES, FREQUENCY, AMPLITUDE, true)));
+			generator = Math.max(generator,
+					Math.abs(octaves.noise2D(x, y, FREQUENCY, AMPLITUDE, true)
+							- octaves.noise(x, y, FREQUENCY, AMPLITUDE, true)));
+		}
+
+		double[] filled2D = new double[SIDE * SIDE];
+		double[] filled = new double[SIDE * SIDE];
+		double x0 = xs[0];
+		double y0 = ys[0];
+
+		noise.fill2D(filled2D, x0, y0, SIDE, SIDE, 1, OCTAVES, FREQUENCY, AMPLITUDE, true);
+		noise.fill(filled, x0, y0, SIDE, SIDE, 1, OCTAVES, FREQUENCY, AMPLITUDE, true);
+
+		double fill = 0;
+		long mismatches = 0;
+
+		for (int row = 0; row < SIDE; row++) {
+			for (int col = 0; col < SIDE; col++) {
+				int index = row * SIDE + col;
+				double expected =
+						noise.noise2D(x0 + col, y0 + row, OCTAVES, FREQUENCY, AMPLITUDE, true);
+
+				if (Double.doubleToLongBits(filled2D[index]) != Double
+						.doubleToLongBits(expected)) {
+					mismatches++;
+				}
+
+				fill = Math.max(fill, Math.abs(filled2D[index] - filled[index]));
+			}
+		}
+
+		System.out.printf("%s: greatest difference from the old noise(x, y) paths%n", name);
+		System.out.printf("  NoiseGenerator.noise2D(x, y)                 %.6f%n", single);
+		System.out.printf("  NoiseGenerator.noise2D(x, y, octaves, ...)   %.6f%n", octave);
+		System.out.printf("  OctaveGenerator.noise2D(x, y, ...)           %.6f%n", generator);
+		System.out.printf("  NoiseGenerator.fill2D vs fill                %.6f%n", fill);
+		System.out.printf("  fill2D == octave noise2D: %d of %d points differ%n", mismatches,
+				SIDE * SIDE);
+
+		return mismatches;
+	}
+
+}
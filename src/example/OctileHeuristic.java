@@ -0,0 +1,24 @@
+package example;
+
+import astar.ICostHeuristic;
+
+// estimates the cost between two tiles as the length of the shortest
+// eight-directional walk between them, which is never more than the true
+// cost since every move costs at least its length
+public class OctileHeuristic implements ICostHeuristic<ChunkedGridNode> {
+
+	private static final double DIAGONAL_EXTRA = Math.sqrt(2.0) - 1;
+
+	@Override
+	public double approxCost(ChunkedGridNode a, ChunkedGridNode b) {
+		if (b == null) {
+			return 0;
+		}
+
+		int dx = Math.abs(b.x - a.x);
+		int dy = Math.abs(b.y - a.y);
+
+		return Math.max(dx, dy) + DIAGONAL_EXTRA * Math.min(dx, dy);
+	}
+
+}
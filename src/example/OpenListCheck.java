@@ -0,0 +1,160 @@
+package example;
+
+import java.util.Random;
+import java.util.function.Function;
+
+import astar.AStar;
+import astar.BinaryHeapOpenList;
+import astar.BucketQueueOpenList;
+import astar.CostQuantizer;
+import astar.ICostHeuristic;
+import astar.IOpenList;
+import astar.NodeStateMap;
+import astar.RadixHeapOpenList;
+import astar.graph.DoubleCostGraph;
+import astar.graph.GraphNode;
+import astar.graph.IGraph;
+
+/**
+ * Checks that A* with the quantized open lists, {@link RadixHeapOpenList} and
+ * {@link BucketQueueOpenList}, finds paths costing at most the quantizer's
+ * greatest error more than with the default {@link BinaryHeapOpenList}.
+ *
+ * <p>
+ * Runs a small graph where the open list runs empty right after the start is
+ * expanded and the neighbours are added dearest first, then random queries
+ * over the demo terrain, once with its costs rounded to whole numbers and
+ * {@link CostQuantizer#INTEGER}, where the costs must match exactly, and once
+ * with its own costs and a fine quantizer. Every query is run with no
+ * heuristic and with the octile distance.
+ * </p>
+ *
+ * <p>
+ * Usage: {@code OpenListCheck [tiles] [queries] [seed]}
+ * </p>
+ */
+public class OpenListCheck {
+
+	private static final double HEIGHT_WEIGHT = 50;
+	private static final int OCTAVES = 3;
+	private static final double AMPLITUDE = 5;
+	private static final double FREQUENCY = 0.35;
+
+	private static final double DIAGONAL_EXTRA = Math.sqrt(2.0) - 1;
+
+	public static void main(String[] args) {
+		int tiles = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+		// start 0, A 1, B 2, far 3, goal 4, with the dearest edge of start
+		// listed first: the shortest path is start, B, goal at a cost of 2
+		DoubleCostGraph small = new DoubleCostGraph(new int[] {0, 3, 4, 5, 6, 6},
+				new int[] {1, 2, 3, 4, 4, 4}, new double[] {1000, 1, 500, 1, 1, 1});
+
+		long failures = check("small graph", small, CostQuantizer.INTEGER, new int[] {0},
+				new int[] {4}, (a, b) -> 0);
+
+		DoubleCostGraph terrain =
+				new GridGraphBuilder(seed, OCTAVES, FREQUENCY, AMPLITUDE, HEIGHT_WEIGHT)
+						.buildGraph(tiles, tiles, null);
+
+		double[] rounded = new double[(int) terrain.getEdgeCount()];
+		int[] offsets = new int[terrain.getNodeCount() + 1];
+		int[] targets = new int[rounded.length];
+
+		for (int node = 0; node <= terrain.getNodeCount(); node++) {
+			offsets[node] = node < terrain.getNodeCount() ? (int) terrain.getFirstEdge(node)
+					: rounded.length;
+		}
+
+		for (int edge = 0; edge < rounded.length; edge++) {
+			targets[edge] = terrain.getTarget(edge);
+			rounded[edge] = Math.rint(terrain.getCost(edge));
+		}
+
+		Random random = new Random(seed);
+		int[] starts = new int[queries];
+		int[] goals = new int[queries];
+
+		for (int q = 0; q < queries; q++) {
+			starts[q] = random.nextInt(terrain.getNodeCount());
+			goals[q] = random.nextInt(terrain.getNodeCount());
+		}
+
+		// every move costs at least its length, rounded or not, so the octile
+		// distance never overestimates and is consistent
+		ICostHeuristic<GraphNode> octile = (a, b) -> {
+			int dx = Math.abs(a.getId() / tiles - b.getId() / tiles);
+			int dy = Math.abs(a.getId() % tiles - b.getId() % tiles);
+			return Math.max(dx, dy) + DIAGONAL_EXTRA * Math.min(dx, dy);
+		};
+
+		IGraph whole = new DoubleCostGraph(offsets, targets, rounded);
+
+		failures += check("whole costs, no heuristic", whole, CostQuantizer.INTEGER, starts,
+				goals, (a, b) -> 0);
+		failures += check("whole costs, octile", whole, CostQuantizer.INTEGER, starts, goals,
+				octile);
+		failures += check("terrain costs, no heuristic", terrain,
+				CostQuantizer.forMaxError(1e-3), starts, goals, (a, b) -> 0);
+		failures += check("terrain costs, octile", terrain, CostQuantizer.forMaxError(1e-3),
+				starts, goals, octile);
+
+		System.out.println(failures == 0 ? "ok" : "FAILED");
+
+		if (failures != 0) {
+			System.exit(1);
+		}
+	}
+
+	// runs each query with every open list, returning the number of queries
+	// where a quantized list found a path dearer than allowed
+	private static long check(String name, IGraph graph, CostQuantizer quantizer, int[] starts,
+			int[] goals, ICostHeuristic<GraphNode> heuristic) {
+		long radixFailures = 0;
+		long bucketFailures = 0;
+		double radixError = 0;
+		double bucketError = 0;
+
+		for (int q = 0; q < starts.length; q++) {
+			double expected = cost(graph, starts[q], goals[q], heuristic,
+					states -> new BinaryHeapOpenList(states));
+			double radix = cost(graph, starts[q], goals[q], heuristic,
+					states -> new RadixHeapOpenList(states, quantizer));
+			double bucket = cost(graph, starts[q], goals[q], heuristic,
+					states -> new BucketQueueOpenList(states, quantizer));
+
+			radixError = Math.max(radixError, radix - expected);
+			bucketError = Math.max(bucketError, bucket - expected);
+			radixFailures += !(radix - expected <= quantizer.getMaxError()) ? 1 : 0;
+			bucketFailures += !(bucket - expected <= quantizer.getMaxError()) ? 1 : 0;
+		}
+
+		System.out.printf("%s: %d queries, greatest excess radix %.6f, bucket %.6f, "
+				+ "allowed %.6f, %d radix and %d bucket failures%n", name, starts.length,
+				radixError, bucketError, quantizer.getMaxError(), radixFailures,
+				bucketFailures);
+
+		return radixFailures + bucketFailures;
+	}
+
+	// the cost of the path A* finds with the given open list, or infinity if
+	// there is none
+	private static double cost(IGraph graph, int start, int goal,
+			ICostHeuristic<GraphNode> heuristic,
+			Function<NodeStateMap<GraphNode>, IOpenList> openList) {
+		NodeStateMap<GraphNode> states = new NodeStateMap<GraphNode>();
+		IOpenList worklist = openList.apply(states);
+
+		GraphNode goalNode = new GraphNode(graph, goal);
+		AStar<GraphNode> astar = new AStar<GraphNode>(new GraphNode(graph, start), heuristic,
+				states, worklist);
+
+		astar.calculate(goalNode);
+
+		AStar<GraphNode>.NodeData data = astar.getData(goalNode);
+		return data == null ? Double.POSITIVE_INFINITY : data.getCostFromStart();
+	}
+
+}
@@ -0,0 +1,117 @@
+package example;
+
+import java.util.Random;
+
+import astar.ICostHeuristic;
+import astar.graph.DoubleCostGraph;
+import astar.graph.GraphNode;
+import astar.graph.ParallelAStar;
+import astar.graph.ShortestPaths;
+
+/**
+ * Builds the demo terrain as an array graph and times the same queries with
+ * {@link ParallelAStar} on one thread, then on twice as many each round up
+ * to the given number, checking every cost against Dijkstra's Algorithm.
+ *
+ * <p>
+ * Speedups only mean something with at least as many free cores as workers;
+ * with fewer, the workers share the cores and each extra one mostly adds
+ * re-expansions. The number of cores is printed first so results can be
+ * read with that in mind.
+ * </p>
+ *
+ * <p>
+ * Usage: {@code ParallelAStarBenchmark [tiles] [queries] [threads] [seed]}
+ * </p>
+ */
+public class ParallelAStarBenchmark {
+
+	private static final double HEIGHT_WEIGHT = 50;
+	private static final int OCTAVES = 3;
+	private static final double AMPLITUDE = 5;
+	private static final double FREQUENCY = 0.35;
+
+	private static final double DIAGONAL_EXTRA = Math.sqrt(2.0) - 1;
+
+	public static void main(String[] args) throws InterruptedException {
+		int tiles = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+		int queries = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int maxThreads = args.length > 2 ? Integer.parseInt(args[2])
+				: Runtime.getRuntime().availableProcessors();
+		long seed = args.length > 3 ? Long.parseLong(args[3]) : 0;
+
+		DoubleCostGraph graph =
+				new GridGraphBuilder(seed, OCTAVES, FREQUENCY, AMPLITUDE, HEIGHT_WEIGHT)
+						.buildGraph(tiles, tiles, null);
+
+		Random random = new Random(seed);
+		int[] starts = new int[queries];
+		int[] goals = new int[queries];
+		double[] expected = new double[queries];
+
+		for (int q = 0; q < queries; q++) {
+			starts[q] = random.nextInt(graph.getNodeCount());
+			goals[q] = random.nextInt(graph.getNodeCount());
+			expected[q] = ShortestPaths.distancesFrom(graph, starts[q])[goals[q]];
+		}
+
+		// every move costs at least its length, so the octile distance never
+		// overestimates
+		ICostHeuristic<GraphNode> heuristic = (a, b) -> {
+			int dx = Math.abs(a.getId() / tiles - b.getId() / tiles);
+			int dy = Math.abs(a.getId() % tiles - b.getId() % tiles);
+			return Math.max(dx, dy) + DIAGONAL_EXTRA * Math.min(dx, dy);
+		};
+
+		System.out.printf("%d cores, %d x %d tiles, %d queries%n",
+				Runtime.getRuntime().availableProcessors(), tiles, tiles, queries);
+
+		double single = 0;
+
+		for (int threads = 1; threads <= maxThreads; threads = next(threads, maxThreads)) {
+			ParallelAStar search = new ParallelAStar(graph, heuristic, threads);
+
+			// once untimed, so the JIT has compiled the search
+			run(search, starts, goals, expected);
+
+			long start = System.nanoTime();
+			long[] result = run(search, starts, goals, expected);
+			double millis = (System.nanoTime() - start) / 1e6 / queries;
+
+			search.close();
+
+			if (threads == 1) {
+				single = millis;
+			}
+
+			System.out.printf(
+					"%2d threads: %.2f ms per query, speedup %.2f, %d expansions per query, %d wrong%n",
+					threads, millis, single / millis, result[0] / queries, result[1]);
+		}
+	}
+
+	// doubles the number of threads, ending on the greatest
+	private static int next(int threads, int maxThreads) {
+		return threads < maxThreads && threads * 2 > maxThreads ? maxThreads : threads * 2;
+	}
+
+	// returns the total expansions, then the number of costs that differ from
+	// Dijkstra's Algorithm
+	private static long[] run(ParallelAStar search, int[] starts, int[] goals, double[] expected)
+			throws InterruptedException {
+		long expanded = 0;
+		long wrong = 0;
+
+		for (int q = 0; q < starts.length; q++) {
+			double cost = search.search(starts[q], goals[q]);
+			expanded += search.getExpanded();
+
+			if (Math.abs(cost - expected[q]) > 1e-9 * Math.max(1, expected[q])) {
+				wrong++;
+			}
+		}
+
+		return new long[] {expanded, wrong};
+	}
+
+}
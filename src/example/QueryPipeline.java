@@ -0,0 +1,203 @@
+package example;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import javax.swing.SwingUtilities;
+
+/**
+ * Runs queries on a background thread, where only the latest one matters.
+ * Queries submitted while another is waiting replace it, and a query that is
+ * running when a newer one arrives is told it has gone stale so it can stop
+ * early. Each finished result is handed to a consumer on the Swing event
+ * thread.
+ *
+ * <p>
+ * The time from each submission to the publication of its result on the
+ * event thread is recorded, so the interactive path can be measured as the
+ * user sees it.
+ * </p>
+ *
+ * @param <Q>
+ *            The type of queries
+ * @param <R>
+ *            The type of results
+ */
+public class QueryPipeline<Q, R> {
+
+	/**
+	 * Answers one query on the pipeline's thread.
+	 *
+	 * @param <Q>
+	 *            The type of queries
+	 * @param <R>
+	 *            The type of results
+	 */
+	public interface IQueryRunner<Q, R> {
+
+		/**
+		 * @param query
+		 *            The query to answer
+		 * @param stale
+		 *            Becomes true once a newer query has been submitted
+		 * @return The result, or null if the query was given up as stale
+		 */
+		R run(Q query, BooleanSupplier stale);
+
+	}
+
+	// number of recent latencies kept for percentiles
+	private static final int LATENCY_SAMPLES = 1024;
+
+	private final IQueryRunner<Q, R> runner;
+	private final Consumer<R> publisher;
+	private final Thread thread;
+
+	private Q pending;
+	private long pendingTime;
+	private volatile long version;
+	private boolean closed;
+
+	private final long[] latencies = new long[LATENCY_SAMPLES];
+	private long published;
+	private long coalesced;
+	private long cancelled;
+
+	/**
+	 * Starts the pipeline's thread.
+	 *
+	 * @param runner
+	 *            Answers queries
+	 * @param publisher
+	 *            Receives each result on the Swing event thread
+	 */
+	public QueryPipeline(IQueryRunner<Q, R> runner, Consumer<R> publisher) {
+		this.runner = runner;
+		this.publisher = publisher;
+		this.thread = new Thread(this::work, "query-pipeline");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Submits a query, replacing any query still waiting and marking any
+	 * running query stale.
+	 *
+	 * @param query
+	 *            The query to answer
+	 */
+	public synchronized void submit(Q query) {
+		if (this.pending != null) {
+			this.coalesced++;
+		}
+
+		this.pending = query;
+		this.pendingTime = System.nanoTime();
+		this.version++;
+		this.notifyAll();
+	}
+
+	/**
+	 * Stops the pipeline's thread once its current query is done.
+	 */
+	public synchronized void close() {
+		this.closed = true;
+		this.version++;
+		this.notifyAll();
+	}
+
+	private void work() {
+		while (true) {
+
+			Q query;
+			long time;
+			long version;
+
+			synchronized (this) {
+				while (this.pending == null && !this.closed) {
+					try {
+						this.wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+
+				if (this.closed) {
+					return;
+				}
+
+				query = this.pending;
+				time = this.pendingTime;
+				version = this.version;
+				this.pending = null;
+			}
+
+			R result = this.runner.run(query, () -> this.version != version);
+
+			// a newer query may have arrived after the runner last checked, and
+			// its result will replace this one anyway
+			if (result == null || this.version != version) {
+				synchronized (this) {
+					this.cancelled++;
+				}
+				continue;
+			}
+
+			SwingUtilities.invokeLater(() -> {
+				this.publisher.accept(result);
+				this.recordLatency(System.nanoTime() - time);
+			});
+
+		}
+	}
+
+	private synchronized void recordLatency(long nanos) {
+		this.latencies[(int) (this.published % LATENCY_SAMPLES)] = nanos;
+		this.published++;
+	}
+
+	/**
+	 * @return The number of results published
+	 */
+	public synchronized long getPublished() {
+		return this.published;
+	}
+
+	/**
+	 * @return The number of queries replaced before they started
+	 */
+	public synchronized long getCoalesced() {
+		return this.coalesced;
+	}
+
+	/**
+	 * @return The number of queries given up as stale while running, or
+	 *         found stale once done and not published
+	 */
+	public synchronized long getCancelled() {
+		return this.cancelled;
+	}
+
+	/**
+	 * @param percentile
+	 *            The percentile to report, from 0 to 100
+	 * @return The latency from submission to publication at the given
+	 *         percentile of recent results, in milliseconds, or 0 if none
+	 *         have been published
+	 */
+	public synchronized double getLatency(double percentile) {
+		int count = (int) Math.min(this.published, LATENCY_SAMPLES);
+
+		if (count == 0) {
+			return 0;
+		}
+
+		long[] sorted = Arrays.copyOf(this.latencies, count);
+		Arrays.sort(sorted);
+
+		int index = (int) Math.ceil(percentile / 100 * count) - 1;
+		return sorted[Math.max(0, Math.min(count - 1, index))] / 1e6;
+	}
+
+}
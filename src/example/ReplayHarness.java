@@ -0,0 +1,369 @@
+package example;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import astar.AStar;
+import astar.ICostHeuristic;
+
+/**
+ * Replays a workload of searches over the demo terrain without any window and
+ * prints what it measured as one JSON object, so that runs can be compared.
+ *
+ * <p>
+ * The terrain and heuristic are built the same way as in
+ * {@link AStarPerlinTest}. The workload is either generated from a seed or
+ * read from a file with one query per line, written as
+ * {@code startCol startRow goalCol goalRow}; a generated workload can be saved
+ * in the same form to replay later.
+ * </p>
+ *
+ * <p>
+ * Queries are spread over a number of threads, each with its own search. With
+ * a target rate, query i is due at i / rate seconds after the run starts, and
+ * its latency is counted from then rather than from when a thread got to it,
+ * so a run that falls behind shows the queueing delay it caused. Without a
+ * rate, queries run back to back and latency is the time each one took.
+ * </p>
+ *
+ * <p>
+ * Usage: {@code ReplayHarness [--tiles n] [--seed n] [--queries n]
+ * [--warmup n] [--threads n] [--rate perSecond] [--workload file]
+ * [--record file]}
+ * </p>
+ */
+public class ReplayHarness {
+
+	private static final double HEIGHT_WEIGHT = 50;
+	private static final int OCTAVES = 3;
+	private static final double AMPLITUDE = 5;
+	private static final double FREQUENCY = 0.35;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		int tiles = 200;
+		long seed = 0;
+		int queries = 1000;
+		int warmup = 200;
+		int threads = 1;
+		double rate = 0;
+		Path workload = null;
+		Path record = null;
+
+		for (int i = 0; i < args.length; i += 2) {
+			if (i + 1 == args.length) {
+				throw new IllegalArgumentException("missing value for " + args[i]);
+			}
+
+			String value = args[i + 1];
+
+			switch (args[i]) {
+			case "--tiles":
+				tiles = Integer.parseInt(value);
+				break;
+			case "--seed":
+				seed = Long.parseLong(value);
+				break;
+			case "--queries":
+				queries = Integer.parseInt(value);
+				break;
+			case "--warmup":
+				warmup = Integer.parseInt(value);
+				break;
+			case "--threads":
+				threads = Integer.parseInt(value);
+				break;
+			case "--rate":
+				rate = Double.parseDouble(value);
+				break;
+			case "--workload":
+				workload = Paths.get(value);
+				break;
+			case "--record":
+				record = Paths.get(value);
+				break;
+			default:
+				throw new IllegalArgumentException("unknown option " + args[i]);
+			}
+		}
+
+		GridNode[][] grid = new GridGraphBuilder(seed, OCTAVES, FREQUENCY, AMPLITUDE,
+				HEIGHT_WEIGHT).build(tiles, tiles).getGrid();
+
+		int[] work = workload != null ? read(workload, tiles) : generate(queries, tiles, seed);
+
+		if (record != null) {
+			write(record, work);
+		}
+
+		ReplayHarness harness = new ReplayHarness(grid, work);
+
+		// let the JIT compile the search before anything is timed
+		harness.run(Math.min(warmup, harness.size()), threads, 0);
+
+		Result result = harness.run(harness.size(), threads, rate);
+
+		System.out.println(result.toJson(tiles, seed, threads, rate));
+	}
+
+	private final GridNode[][] grid;
+
+	// four ints per query: start column and row, goal column and row
+	private final int[] work;
+
+	/**
+	 * @param grid
+	 *            The terrain to search, fully built
+	 * @param work
+	 *            The queries, as start column, start row, goal column and goal
+	 *            row, four ints each
+	 */
+	public ReplayHarness(GridNode[][] grid, int[] work) {
+		if (work.length % 4 != 0) {
+			throw new IllegalArgumentException("queries must have four ints each");
+		}
+
+		this.grid = grid;
+		this.work = work;
+	}
+
+	/**
+	 * @return The number of queries in the workload
+	 */
+	public int size() {
+		return this.work.length / 4;
+	}
+
+	/**
+	 * Runs the first queries of the workload.
+	 *
+	 * @param queries
+	 *            The number of queries to run
+	 * @param threads
+	 *            The number of threads to run them on
+	 * @param rate
+	 *            Queries per second to start them at, or 0 to run them back to
+	 *            back
+	 * @return What was measured
+	 * @throws InterruptedException
+	 *             If interrupted while waiting for the threads
+	 */
+	public Result run(int queries, int threads, double rate) throws InterruptedException {
+		AtomicInteger next = new AtomicInteger();
+		Histogram[] latencies = new Histogram[threads];
+		Histogram[] expansions = new Histogram[threads];
+		Thread[] workers = new Thread[threads];
+
+		long begin = System.nanoTime();
+
+		for (int t = 0; t < threads; t++) {
+			Histogram latency = latencies[t] = new Histogram();
+			Histogram expanded = expansions[t] = new Histogram();
+
+			workers[t] = new Thread(() -> {
+				ICostHeuristic<GridNode> heuristic = new GridHeuristic(this.grid, 0.5, 0.5);
+				AStar<GridNode> astar = new AStar<GridNode>(this.grid[0][0], heuristic);
+
+				int i;
+				while ((i = next.getAndIncrement()) < queries) {
+
+					long due = rate > 0 ? begin + (long) (i * 1e9 / rate) : System.nanoTime();
+					long wait;
+
+					while ((wait = due - System.nanoTime()) > 0) {
+						LockSupport.parkNanos(wait);
+					}
+
+					astar.setStart(this.grid[this.work[i * 4]][this.work[i * 4 + 1]]);
+					astar.calculate(this.grid[this.work[i * 4 + 2]][this.work[i * 4 + 3]]);
+
+					latency.record(System.nanoTime() - due);
+					expanded.record(astar.getExpanded());
+
+				}
+			}, "replay-" + t);
+
+			workers[t].start();
+		}
+
+		for (Thread worker : workers) {
+			worker.join();
+		}
+
+		long elapsed = System.nanoTime() - begin;
+
+		Result result = new Result(elapsed);
+		for (int t = 0; t < threads; t++) {
+			result.latency.add(latencies[t]);
+			result.expansions.add(expansions[t]);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Makes a workload of queries between random tiles.
+	 *
+	 * @param queries
+	 *            The number of queries
+	 * @param tiles
+	 *            The number of tiles along each side of the terrain
+	 * @param seed
+	 *            The seed to pick tiles with
+	 * @return The queries, four ints each
+	 */
+	public static int[] generate(int queries, int tiles, long seed) {
+		Random random = new Random(seed);
+		int[] work = new int[queries * 4];
+
+		for (int i = 0; i < work.length; i++) {
+			work[i] = random.nextInt(tiles);
+		}
+
+		return work;
+	}
+
+	/**
+	 * Reads a workload written by {@link #write(Path, int[])}. Blank lines and
+	 * lines starting with # are skipped.
+	 *
+	 * @param file
+	 *            The file to read
+	 * @param tiles
+	 *            The number of tiles along each side of the terrain
+	 * @return The queries, four ints each
+	 * @throws IOException
+	 *             If the file cannot be read or a line is not a query on the
+	 *             terrain
+	 */
+	public static int[] read(Path file, int tiles) throws IOException {
+		List<String> lines = new ArrayList<String>();
+
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (!line.isEmpty() && !line.startsWith("#")) {
+					lines.add(line);
+				}
+			}
+		}
+
+		int[] work = new int[lines.size() * 4];
+
+		for (int i = 0; i < lines.size(); i++) {
+			String[] fields = lines.get(i).split("\\s+");
+
+			if (fields.length != 4) {
+				throw new IOException("expected four numbers in query: " + lines.get(i));
+			}
+
+			for (int j = 0; j < 4; j++) {
+				int value;
+
+				try {
+					value = Integer.parseInt(fields[j]);
+				} catch (NumberFormatException e) {
+					throw new IOException("bad number in query: " + lines.get(i), e);
+				}
+
+				if (value < 0 || value >= tiles) {
+					throw new IOException("query outside the terrain: " + lines.get(i));
+				}
+
+				work[i * 4 + j] = value;
+			}
+		}
+
+		return work;
+	}
+
+	/**
+	 * Writes a workload with one query per line.
+	 *
+	 * @param file
+	 *            The file to write
+	 * @param work
+	 *            The queries, four ints each
+	 * @throws IOException
+	 *             If the file cannot be written
+	 */
+	public static void write(Path file, int[] work) throws IOException {
+		try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			writer.write("# startCol startRow goalCol goalRow");
+			writer.newLine();
+
+			for (int i = 0; i < work.length; i += 4) {
+				writer.write(work[i] + " " + work[i + 1] + " " + work[i + 2] + " " + work[i + 3]);
+				writer.newLine();
+			}
+		}
+	}
+
+	/**
+	 * What one run of a workload measured.
+	 */
+	public static class Result {
+
+		private final long elapsed;
+		private final Histogram latency = new Histogram();
+		private final Histogram expansions = new Histogram();
+
+		Result(long elapsed) {
+			this.elapsed = elapsed;
+		}
+
+		/**
+		 * @return The latency of each query in nanoseconds
+		 */
+		public Histogram getLatency() {
+			return this.latency;
+		}
+
+		/**
+		 * @return The nodes expanded by each query
+		 */
+		public Histogram getExpansions() {
+			return this.expansions;
+		}
+
+		/**
+		 * @return Queries finished per second over the whole run
+		 */
+		public double getThroughput() {
+			return this.latency.getCount() / (this.elapsed / 1e9);
+		}
+
+		String toJson(int tiles, long seed, int threads, double rate) {
+			return String.format(Locale.ROOT,
+					"{\"tiles\": %d, \"seed\": %d, \"threads\": %d, \"targetRate\": %s, "
+							+ "\"queries\": %d, \"seconds\": %.3f, \"throughput\": %.1f, "
+							+ "\"latencyMicros\": %s, \"expansions\": %s}",
+					tiles, seed, threads, rate > 0 ? String.format(Locale.ROOT, "%.1f", rate)
+							: "null",
+					this.latency.getCount(), this.elapsed / 1e9, this.getThroughput(),
+					json(this.latency, 1e3), json(this.expansions, 1));
+		}
+
+		// percentiles and extremes, divided by scale
+		private static String json(Histogram histogram, double scale) {
+			return String.format(Locale.ROOT,
+					"{\"mean\": %.1f, \"p50\": %.1f, \"p99\": %.1f, \"p999\": %.1f, \"max\": %.1f}",
+					histogram.getMean() / scale, histogram.getValueAtPercentile(50) / scale,
+					histogram.getValueAtPercentile(99) / scale,
+					histogram.getValueAtPercentile(99.9) / scale, histogram.getMax() / scale);
+		}
+
+	}
+
+}
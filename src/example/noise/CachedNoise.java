@@ -0,0 +1,220 @@
+package example.noise;
+
+import java.util.Arrays;
+
+/**
+ * Octave noise sampled at whole coordinates and remembered in a
+ * {@link NoiseTileCache}, for callers that sample the same points again and
+ * again. The first point asked for in a tile fills the whole tile in one
+ * pass, and later points in it are read back from the cache.
+ * <p>
+ * Tiles are stored under the generator's seed, class and octave parameters,
+ * so several fields can share one cache. Fields given the same seed and
+ * parameters must sample the same noise. The values are exactly those of
+ * the generator's own octave methods.
+ */
+public class CachedNoise {
+	private final NoiseTileCache cache;
+	private final FieldKey field;
+	private final TileSource source;
+
+	// fills one tile whose first point is (x0, y0)
+	private interface TileSource {
+		void fill(double[] tile, int x0, int y0, int size);
+	}
+
+	/**
+	 * Creates a cached view of a generator's octave noise, matching
+	 * {@link NoiseGenerator#noise(double, double, int, double, double, boolean)}
+	 *
+	 * @param noise
+	 *            Generator to sample
+	 * @param seed
+	 *            Seed the generator was made with
+	 * @param octaves
+	 *            Number of octaves to use
+	 * @param frequency
+	 *            How much to alter the frequency by each octave
+	 * @param amplitude
+	 *            How much to alter the amplitude by each octave
+	 * @param normalized
+	 *            If true, normalize the values to [-1, 1]
+	 * @param cache
+	 *            Cache to keep tiles in
+	 */
+	public CachedNoise(NoiseGenerator noise, long seed, int octaves, double frequency,
+			double amplitude, boolean normalized, NoiseTileCache cache) {
+		this.cache = cache;
+		this.field = new FieldKey(noise.getClass(), seed, octaves, frequency, amplitude,
+				normalized, 1, 1);
+		this.source = (tile, x0, y0, size) -> noise.fill(tile, x0, y0, size, size, 1, octaves,
+				frequency, amplitude, normalized);
+	}
+
+	/**
+	 * Creates a cached view of an octave generator's noise, matching
+	 * {@link OctaveGenerator#noise(double, double, double, double, boolean)}.
+	 * The generator's scales are read now and must not change afterwards.
+	 *
+	 * @param generator
+	 *            Generator to sample
+	 * @param seed
+	 *            Seed the generator was made with
+	 * @param frequency
+	 *            How much to alter the frequency by each octave
+	 * @param amplitude
+	 *            How much to alter the amplitude by each octave
+	 * @param normalized
+	 *            If true, normalize the values to [-1, 1]
+	 * @param cache
+	 *            Cache to keep tiles in
+	 */
+	public CachedNoise(OctaveGenerator generator, long seed, double frequency, double amplitude,
+			boolean normalized, NoiseTileCache cache) {
+		this.cache = cache;
+		this.field = new FieldKey(generator.getClass(), seed, generator.getOctaves().length,
+				frequency, amplitude, normalized, generator.getXScale(), generator.getYScale());
+		this.source = (tile, x0, y0, size) -> generator.fill(tile, x0, y0, size, size, 1,
+				frequency, amplitude, normalized);
+	}
+
+	/**
+	 * Gets the noise at a point
+	 *
+	 * @param x
+	 *            X-coordinate
+	 * @param y
+	 *            Y-coordinate
+	 * @return Noise at the point
+	 */
+	public double noise(int x, int y) {
+		int size = cache.getTileSize();
+		int tileX = Math.floorDiv(x, size);
+		int tileY = Math.floorDiv(y, size);
+
+		return tile(tileX, tileY)[(y - tileY * size) * size + x - tileX * size];
+	}
+
+	/**
+	 * Fills a grid with the noise at whole coordinates, copying from as many
+	 * tiles as it covers. The point (x0 + i, y0 + j) is stored at
+	 * out[j * width + i].
+	 *
+	 * @param out
+	 *            Array to fill, of at least width * height elements
+	 * @param x0
+	 *            X-coordinate of the first column
+	 * @param y0
+	 *            Y-coordinate of the first row
+	 * @param width
+	 *            Number of columns
+	 * @param height
+	 *            Number of rows
+	 */
+	public void fill(double[] out, int x0, int y0, int width, int height) {
+		int size = cache.getTileSize();
+
+		for (int tileY = Math.floorDiv(y0, size); tileY * size < y0 + height; tileY++) {
+			for (int tileX = Math.floorDiv(x0, size); tileX * size < x0 + width; tileX++) {
+
+				double[] tile = tile(tileX, tileY);
+				int fromX = Math.max(x0, tileX * size);
+				int toX = Math.min(x0 + width, (tileX + 1) * size);
+				int fromY = Math.max(y0, tileY * size);
+				int toY = Math.min(y0 + height, (tileY + 1) * size);
+
+				for (int y = fromY; y < toY; y++) {
+					System.arraycopy(tile, (y - tileY * size) * size + fromX - tileX * size, out,
+							(y - y0) * width + fromX - x0, toX - fromX);
+				}
+
+			}
+		}
+	}
+
+	private double[] tile(int tileX, int tileY) {
+		TileKey key = new TileKey(field, tileX, tileY);
+		double[] tile = cache.get(key);
+
+		if (tile == null) {
+			int size = cache.getTileSize();
+
+			tile = new double[size * size];
+			source.fill(tile, tileX * size, tileY * size, size);
+			tile = cache.put(key, tile);
+		}
+
+		return tile;
+	}
+
+	// identifies the noise a field samples
+	private static final class FieldKey {
+		private final Class<?> type;
+		private final long seed;
+		private final int octaves;
+		private final double[] parameters;
+		private final boolean normalized;
+		private final int hash;
+
+		FieldKey(Class<?> type, long seed, int octaves, double frequency, double amplitude,
+				boolean normalized, double xScale, double yScale) {
+			this.type = type;
+			this.seed = seed;
+			this.octaves = octaves;
+			this.parameters = new double[] {frequency, amplitude, xScale, yScale};
+			this.normalized = normalized;
+
+			int hash = type.hashCode();
+			hash = hash * 31 + Long.hashCode(seed);
+			hash = hash * 31 + octaves;
+			hash = hash * 31 + Arrays.hashCode(parameters);
+			this.hash = hash * 31 + (normalized ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof FieldKey)) {
+				return false;
+			}
+
+			FieldKey other = (FieldKey) obj;
+			return type == other.type && seed == other.seed && octaves == other.octaves
+					&& normalized == other.normalized
+					&& Arrays.equals(parameters, other.parameters);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	// identifies one tile of a field
+	private static final class TileKey {
+		private final FieldKey field;
+		private final int x;
+		private final int y;
+
+		TileKey(FieldKey field, int x, int y) {
+			this.field = field;
+			this.x = x;
+			this.y = y;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof TileKey)) {
+				return false;
+			}
+
+			TileKey other = (TileKey) obj;
+			return x == other.x && y == other.y && field.equals(other.field);
+		}
+
+		@Override
+		public int hashCode() {
+			return (field.hashCode() * 31 + x) * 31 + y;
+		}
+	}
+
+}
@@ -0,0 +1,209 @@
+package example.noise;
+
+import java.util.Random;
+
+/**
+ * Creates perlin noise through unbiased octaves, evaluating every octave in
+ * one loop over flattened tables instead of calling each octave's generator
+ * in turn.
+ * <p>
+ * The permutation tables of all octaves are copied end to end into one
+ * array, and their offsets into three more, when the generator is created.
+ * The octave methods then give exactly the same values as a
+ * {@link PerlinOctaveGenerator} built from the same seed.
+ * <p>
+ * The methods that take an epsilon may also stop early: once the octaves
+ * still to come could not move the result by more than epsilon, they are
+ * skipped. Each octave is bounded by {@link #PEAK} times its amplitude, so
+ * with amplitudes that fall off, as they do in terrain, most of the cost of
+ * the high octaves goes away for little loss of detail.
+ */
+public class FusedPerlinOctaveGenerator extends PerlinOctaveGenerator {
+
+	/**
+	 * Largest absolute value a single octave can take. Improved perlin noise
+	 * with these gradients peaks a little above 1, below this bound.
+	 */
+	public static final double PEAK = 1.04;
+
+	private final int[] perms;
+	private final double[] offsetsX;
+	private final double[] offsetsY;
+	private final double[] offsetsZ;
+
+	/**
+	 * Creates a fused perlin octave generator for the given seed
+	 *
+	 * @param seed
+	 *            Seed to construct this generator for
+	 * @param octaves
+	 *            Amount of octaves to create
+	 */
+	public FusedPerlinOctaveGenerator(long seed, int octaves) {
+		this(new Random(seed), octaves);
+	}
+
+	/**
+	 * Creates a fused perlin octave generator for the given {@link Random}
+	 *
+	 * @param rand
+	 *            Random object to construct this generator for
+	 * @param octaves
+	 *            Amount of octaves to create
+	 */
+	public FusedPerlinOctaveGenerator(Random rand, int octaves) {
+		super(rand, octaves);
+
+		perms = new int[octaves * 512];
+		offsetsX = new double[octaves];
+		offsetsY = new double[octaves];
+		offsetsZ = new double[octaves];
+
+		for (int i = 0; i < octaves; i++) {
+			NoiseGenerator octave = this.octaves[i];
+
+			System.arraycopy(octave.perm, 0, perms, i * 512, 512);
+			offsetsX[i] = octave.offsetX;
+			offsetsY[i] = octave.offsetY;
+			offsetsZ[i] = octave.offsetZ;
+		}
+	}
+
+	@Override
+	public double noise(double x, double y, double z, double frequency, double amplitude,
+			boolean normalized) {
+		return noise(x, y, z, frequency, amplitude, normalized, 0);
+	}
+
+	/**
+	 * Generates noise for the 2D coordinates using the specified number of
+	 * octaves and parameters, skipping octaves that could not change the
+	 * result by more than epsilon between them
+	 *
+	 * @param x
+	 *            X-coordinate
+	 * @param y
+	 *            Y-coordinate
+	 * @param frequency
+	 *            How much to alter the frequency by each octave
+	 * @param amplitude
+	 *            How much to alter the amplitude by each octave
+	 * @param normalized
+	 *            If true, normalize the value to [-1, 1]
+	 * @param epsilon
+	 *            Largest error allowed in the result, after normalizing; 0
+	 *            evaluates every octave
+	 * @return Resulting noise
+	 */
+	public double noise(double x, double y, double frequency, double amplitude,
+			boolean normalized, double epsilon) {
+		return noise(x, y, 0, frequency, amplitude, normalized, epsilon);
+	}
+
+	/**
+	 * Generates noise for the 3D coordinates using the specified number of
+	 * octaves and parameters, skipping octaves that could not change the
+	 * result by more than epsilon between them
+	 *
+	 * @param x
+	 *            X-coordinate
+	 * @param y
+	 *            Y-coordinate
+	 * @param z
+	 *            Z-coordinate
+	 * @param frequency
+	 *            How much to alter the frequency by each octave
+	 * @param amplitude
+	 *            How much to alter the amplitude by each octave
+	 * @param normalized
+	 *            If true, normalize the value to [-1, 1]
+	 * @param epsilon
+	 *            Largest error allowed in the result, after normalizing; 0
+	 *            evaluates every octave
+	 * @return Resulting noise
+	 */
+	public double noise(double x, double y, double z, double frequency, double amplitude,
+			boolean normalized, double epsilon) {
+		int count = offsetsX.length;
+		double max = 0;
+		double amp = 1;
+
+		for (int i = 0; i < count; i++) {
+			max += amp;
+			amp *= amplitude;
+		}
+
+		// the octaves still to come are skipped once the sum of their
+		// amplitudes, times the peak of one octave, is within epsilon
+		double limit = epsilon / PEAK * (normalized ? max : 1);
+		double result = 0;
+		double done = 0;
+		double freq = 1;
+
+		amp = 1;
+		x *= xScale;
+		y *= yScale;
+		z *= zScale;
+
+		for (int i = 0; i < count; i++) {
+			if (epsilon > 0 && Math.abs(max - done) <= limit) {
+				break;
+			}
+
+			result += octave(i * 512, x * freq + offsetsX[i], y * freq + offsetsY[i],
+					z * freq + offsetsZ[i]) * amp;
+			done += amp;
+			freq *= frequency;
+			amp *= amplitude;
+		}
+
+		if (normalized) {
+			result /= max;
+		}
+
+		return result;
+	}
+
+	// the body of PerlinNoiseGenerator.noise(x, y, z) for the octave whose
+	// table starts at base, with the offset already added
+	private double octave(int base, double x, double y, double z) {
+		int[] perm = perms;
+
+		int floorX = NoiseGenerator.floor(x);
+		int floorY = NoiseGenerator.floor(y);
+		int floorZ = NoiseGenerator.floor(z);
+
+		int X = floorX & 255;
+		int Y = floorY & 255;
+		int Z = floorZ & 255;
+
+		x -= floorX;
+		y -= floorY;
+		z -= floorZ;
+
+		double fX = NoiseGenerator.fade(x);
+		double fY = NoiseGenerator.fade(y);
+		double fZ = NoiseGenerator.fade(z);
+
+		int A = perm[base + X] + Y;
+		int AA = perm[base + A] + Z;
+		int AB = perm[base + A + 1] + Z;
+		int B = perm[base + X + 1] + Y;
+		int BA = perm[base + B] + Z;
+		int BB = perm[base + B + 1] + Z;
+
+		double near = NoiseGenerator.lerp(fY,
+				NoiseGenerator.lerp(fX, NoiseGenerator.grad(perm[base + AA], x, y, z),
+						NoiseGenerator.grad(perm[base + BA], x - 1, y, z)),
+				NoiseGenerator.lerp(fX, NoiseGenerator.grad(perm[base + AB], x, y - 1, z),
+						NoiseGenerator.grad(perm[base + BB], x - 1, y - 1, z)));
+		double far = NoiseGenerator.lerp(fY,
+				NoiseGenerator.lerp(fX, NoiseGenerator.grad(perm[base + AA + 1], x, y, z - 1),
+						NoiseGenerator.grad(perm[base + BA + 1], x - 1, y, z - 1)),
+				NoiseGenerator.lerp(fX, NoiseGenerator.grad(perm[base + AB + 1], x, y - 1, z - 1),
+						NoiseGenerator.grad(perm[base + BB + 1], x - 1, y - 1, z - 1)));
+
+		return NoiseGenerator.lerp(fZ, near, far);
+	}
+
+}
@@ -1,13 +1,50 @@
 package example.noise;
 
+import java.util.Arrays;
+
 /**
  * Base class for all noise generators
  */
 public abstract class NoiseGenerator {
+	// distance either side of a point sampled to estimate a gradient
+	private static final double STEP = 1e-5;
+
 	protected final int perm[] = new int[512];
-	protected double offsetX;
-	protected double offsetY;
-	protected double offsetZ;
+	protected final double offsetX;
+	protected final double offsetY;
+	protected final double offsetZ;
+
+	/**
+	 * Creates a generator with no offset
+	 */
+	protected NoiseGenerator() {
+		this(0, 0, 0);
+	}
+
+	/**
+	 * Creates a generator that samples from the given offset. Subclasses fill
+	 * in {@link #perm} in their constructors and never change it afterwards,
+	 * so a generator may be used from several threads at once.
+	 *
+	 * @param offsetX
+	 *            Amount added to each X-coordinate
+	 * @param offsetY
+	 *            Amount added to each Y-coordinate
+	 * @param offsetZ
+	 *            Amount added to each Z-coordinate
+	 */
+	protected NoiseGenerator(double offsetX, double offsetY, double offsetZ) {
+		this.offsetX = offsetX;
+		this.offsetY = offsetY;
+		this.offsetZ = offsetZ;
+	}
+
+	/**
+	 * @return Amount added to each Z-coordinate
+	 */
+	public double getOffsetZ() {
+		return offsetZ;
+	}
 
 	/**
 	 * Speedy floor, faster than (int)Math.floor(x)
@@ -35,6 +72,13 @@ public abstract class NoiseGenerator {
 		return ((hash & 1) == 0 ? u : -u) + ((hash & 2) == 0 ? v : -v);
 	}
 
+	protected static double grad(int hash, double x, double y) {
+		hash &= 15;
+		double u = hash < 8 ? x : y;
+		double v = hash < 4 ? y : hash == 12 || hash == 14 ? x : 0;
+		return ((hash & 1) == 0 ? u : -u) + ((hash & 2) == 0 ? v : -v);
+	}
+
 	/**
 	 * Computes and returns the 1D noise for the given coordinate in 1D space
 	 *
@@ -59,6 +103,75 @@ public abstract class NoiseGenerator {
 		return noise(x, y, 0);
 	}
 
+	/**
+	 * Computes and returns noise for the given coordinates from a kernel that
+	 * only works in two dimensions, where the generator has one. This is
+	 * cheaper than {@link #noise(double, double)}, which for some generators
+	 * samples a plane of their 3D noise, but gives different values: see the
+	 * subclasses for how they differ. Generators without a 2D kernel return
+	 * {@link #noise(double, double)}.
+	 *
+	 * @param x
+	 *            X coordinate
+	 * @param y
+	 *            Y coordinate
+	 * @return Noise at given location, from range -1 to 1
+	 */
+	public double noise2D(double x, double y) {
+		return noise(x, y);
+	}
+
+	/**
+	 * Computes {@link #noise2D(double, double)} along with its gradient.
+	 * Generators that can differentiate their kernel override this to get
+	 * both from one evaluation; by default the gradient is estimated from
+	 * central differences, which takes four more samples.
+	 *
+	 * @param x
+	 *            X coordinate
+	 * @param y
+	 *            Y coordinate
+	 * @param gradient
+	 *            Receives the partial derivatives of the noise along x and y,
+	 *            or null to skip them
+	 * @return Noise at given location, from range -1 to 1
+	 */
+	public double noiseWithGradient(double x, double y, double[] gradient) {
+		if (gradient != null) {
+			gradient[0] = (noise2D(x + STEP, y) - noise2D(x - STEP, y)) / (2 * STEP);
+			gradient[1] = (noise2D(x, y + STEP) - noise2D(x, y - STEP)) / (2 * STEP);
+		}
+
+		return noise2D(x, y);
+	}
+
+	/**
+	 * Computes {@link #noise(double, double, double)} along with its gradient.
+	 * Generators that can differentiate their kernel override this to get
+	 * both from one evaluation; by default the gradient is estimated from
+	 * central differences, which takes six more samples.
+	 *
+	 * @param x
+	 *            X coordinate
+	 * @param y
+	 *            Y coordinate
+	 * @param z
+	 *            Z coordinate
+	 * @param gradient
+	 *            Receives the partial derivatives of the noise along x, y and
+	 *            z, or null to skip them
+	 * @return Noise at given location, from range -1 to 1
+	 */
+	public double noiseWithGradient(double x, double y, double z, double[] gradient) {
+		if (gradient != null) {
+			gradient[0] = (noise(x + STEP, y, z) - noise(x - STEP, y, z)) / (2 * STEP);
+			gradient[1] = (noise(x, y + STEP, z) - noise(x, y - STEP, z)) / (2 * STEP);
+			gradient[2] = (noise(x, y, z + STEP) - noise(x, y, z - STEP)) / (2 * STEP);
+		}
+
+		return noise(x, y, z);
+	}
+
 	/**
 	 * Computes and returns the 3D noise for the given coordinates in 3D space
 	 *
@@ -217,4 +330,353 @@ public abstract class NoiseGenerator {
 
 		return result;
 	}
+
+	/**
+	 * Generates noise for the 2D coordinates using the specified number of
+	 * octaves and parameters, sampling each octave with
+	 * {@link #noise2D(double, double)}
+	 *
+	 * @param x
+	 *            X-coordinate
+	 * @param y
+	 *            Y-coordinate
+	 * @param octaves
+	 *            Number of octaves to use
+	 * @param frequency
+	 *            How much to alter the frequency by each octave
+	 * @param amplitude
+	 *            How much to alter the amplitude by each octave
+	 * @param normalized
+	 *            If true, normalize the value to [-1, 1]
+	 * @return Resulting noise
+	 */
+	public double noise2D(double x, double y, int octaves, double frequency, double amplitude,
+			boolean normalized) {
+		double result = 0;
+		double amp = amplitude;
+		double freq = frequency;
+		double max = 0;
+
+		for (int i = 0; i < octaves; i++) {
+			result += noise2D(x * freq, y * freq) * amp;
+			max += amp;
+			freq *= frequency;
+			amp *= amplitude;
+		}
+
+		if (normalized) {
+			result /= max;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Computes {@link #noise2D(double, double, int, double, double, boolean)}
+	 * along with its gradient, from one
+	 * {@link #noiseWithGradient(double, double, double[])} per octave.
+	 *
+	 * @param x
+	 *            X-coordinate
+	 * @param y
+	 *            Y-coordinate
+	 * @param octaves
+	 *            Number of octaves to use
+	 * @param frequency
+	 *            How much to alter the frequency by each octave
+	 * @param amplitude
+	 *            How much to alter the amplitude by each octave
+	 * @param normalized
+	 *            If true, normalize the value to [-1, 1]
+	 * @param gradient
+	 *            Receives the partial derivatives of the result along x and y
+	 * @return Resulting noise
+	 */
+	public double noiseWithGradient(double x, double y, int octaves, double frequency,
+			double amplitude, boolean normalized, double[] gradient) {
+		double[] octave = new double[2];
+		double result = 0;
+		double amp = amplitude;
+		double freq = frequency;
+		double max = 0;
+
+		gradient[0] = 0;
+		gradient[1] = 0;
+
+		for (int i = 0; i < octaves; i++) {
+			result += noiseWithGradient(x * freq, y * freq, octave) * amp;
+			gradient[0] += octave[0] * freq * amp;
+			gradient[1] += octave[1] * freq * amp;
+			max += amp;
+			freq *= frequency;
+			amp *= amplitude;
+		}
+
+		if (normalized) {
+			result /= max;
+			gradient[0] /= max;
+			gradient[1] /= max;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Computes
+	 * {@link #noise(double, double, double, int, double, double, boolean)}
+	 * along with its gradient, from one
+	 * {@link #noiseWithGradient(double, double, double, double[])} per octave.
+	 *
+	 * @param x
+	 *            X-coordinate
+	 * @param y
+	 *            Y-coordinate
+	 * @param z
+	 *            Z-coordinate
+	 * @param octaves
+	 *            Number of octaves to use
+	 * @param frequency
+	 *            How much to alter the frequency by each octave
+	 * @param amplitude
+	 *            How much to alter the amplitude by each octave
+	 * @param normalized
+	 *            If true, normalize the value to [-1, 1]
+	 * @param gradient
+	 *            Receives the partial derivatives of the result along x, y
+	 *            and z
+	 * @return Resulting noise
+	 */
+	public double noiseWithGradient(double x, double y, double z, int octaves, double frequency,
+			double amplitude, boolean normalized, double[] gradient) {
+		double[] octave = new double[3];
+		double result = 0;
+		double amp = amplitude;
+		double freq = frequency;
+		double max = 0;
+
+		gradient[0] = 0;
+		gradient[1] = 0;
+		gradient[2] = 0;
+
+		for (int i = 0; i < octaves; i++) {
+			result += noiseWithGradient(x * freq, y * freq, z * freq, octave) * amp;
+			gradient[0] += octave[0] * freq * amp;
+			gradient[1] += octave[1] * freq * amp;
+			gradient[2] += octave[2] * freq * amp;
+			max += amp;
+			freq *= frequency;
+			amp *= amplitude;
+		}
+
+		if (normalized) {
+			result /= max;
+			gradient[0] /= max;
+			gradient[1] /= max;
+			gradient[2] /= max;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Fills a grid with noise from the plane z = 0, giving the same values as
+	 * calling {@link #noise(double, double, double)} for each point. The point
+	 * at column i and row j of the grid is (x0 + i * step, y0 + j * step) and
+	 * its value is stored at out[j * width + i].
+	 *
+	 * @param out
+	 *            Array to fill, of at least width * height elements
+	 * @param x0
+	 *            X-coordinate of the first column
+	 * @param y0
+	 *            Y-coordinate of the first row
+	 * @param width
+	 *            Number of columns
+	 * @param height
+	 *            Number of rows
+	 * @param step
+	 *            Distance between neighboring columns and rows
+	 */
+	public void fill(double[] out, double x0, double y0, int width, int height, double step) {
+		Arrays.fill(out, 0, width * height, 0);
+		accumulate(out, coordinates(x0, width, step, 1, 1), coordinates(y0, height, step, 1, 1),
+				1);
+	}
+
+	/**
+	 * Fills a grid with octave noise from the plane z = 0, giving exactly the
+	 * same values as calling
+	 * {@link #noise(double, double, int, double, double, boolean)} for each
+	 * point. The point at column i and row j of the grid is (x0 + i * step,
+	 * y0 + j * step) and its value is stored at out[j * width + i].
+	 *
+	 * @param out
+	 *            Array to fill, of at least width * height elements
+	 * @param x0
+	 *            X-coordinate of the first column
+	 * @param y0
+	 *            Y-coordinate of the first row
+	 * @param width
+	 *            Number of columns
+	 * @param height
+	 *            Number of rows
+	 * @param step
+	 *            Distance between neighboring columns and rows
+	 * @param octaves
+	 *            Number of octaves to use
+	 * @param frequency
+	 *            How much to alter the frequency by each octave
+	 * @param amplitude
+	 *            How much to alter the amplitude by each octave
+	 * @param normalized
+	 *            If true, normalize the value to [-1, 1]
+	 */
+	public void fill(double[] out, double x0, double y0, int width, int height, double step,
+			int octaves, double frequency, double amplitude, boolean normalized) {
+		double amp = amplitude;
+		double freq = frequency;
+		double max = 0;
+
+		Arrays.fill(out, 0, width * height, 0);
+
+		for (int i = 0; i < octaves; i++) {
+			accumulate(out, coordinates(x0, width, step, 1, freq),
+					coordinates(y0, height, step, 1, freq), amp);
+			max += amp;
+			freq *= frequency;
+			amp *= amplitude;
+		}
+
+		if (normalized) {
+			for (int i = 0; i < width * height; i++) {
+				out[i] /= max;
+			}
+		}
+	}
+
+	/**
+	 * Fills a grid with octave noise from the 2D kernel, giving exactly the
+	 * same values as calling
+	 * {@link #noise2D(double, double, int, double, double, boolean)} for each
+	 * point. The point at column i and row j of the grid is (x0 + i * step,
+	 * y0 + j * step) and its value is stored at out[j * width + i].
+	 *
+	 * @param out
+	 *            Array to fill, of at least width * height elements
+	 * @param x0
+	 *            X-coordinate of the first column
+	 * @param y0
+	 *            Y-coordinate of the first row
+	 * @param width
+	 *            Number of columns
+	 * @param height
+	 *            Number of rows
+	 * @param step
+	 *            Distance between neighboring columns and rows
+	 * @param octaves
+	 *            Number of octaves to use
+	 * @param frequency
+	 *            How much to alter the frequency by each octave
+	 * @param amplitude
+	 *            How much to alter the amplitude by each octave
+	 * @param normalized
+	 *            If true, normalize the value to [-1, 1]
+	 */
+	public void fill2D(double[] out, double x0, double y0, int width, int height, double step,
+			int octaves, double frequency, double amplitude, boolean normalized) {
+		double amp = amplitude;
+		double freq = frequency;
+		double max = 0;
+
+		Arrays.fill(out, 0, width * height, 0);
+
+		for (int i = 0; i < octaves; i++) {
+			accumulate2D(out, coordinates(x0, width, step, 1, freq),
+					coordinates(y0, height, step, 1, freq), amp);
+			max += amp;
+			freq *= frequency;
+			amp *= amplitude;
+		}
+
+		if (normalized) {
+			for (int i = 0; i < width * height; i++) {
+				out[i] /= max;
+			}
+		}
+	}
+
+	/**
+	 * Adds noise from the plane z = 0 to every point of a grid. Subclasses
+	 * override this with kernels that share work between points, and must
+	 * give exactly the same result as this loop.
+	 *
+	 * @param out
+	 *            Values of the grid, indexed by row * xs.length + column
+	 * @param xs
+	 *            X-coordinate of each column
+	 * @param ys
+	 *            Y-coordinate of each row
+	 * @param amplitude
+	 *            Amount to multiply the noise by before adding it
+	 */
+	protected void accumulate(double[] out, double[] xs, double[] ys, double amplitude) {
+		int index = 0;
+
+		for (int row = 0; row < ys.length; row++) {
+			for (int col = 0; col < xs.length; col++) {
+				out[index++] += noise(xs[col], ys[row], 0) * amplitude;
+			}
+		}
+	}
+
+	/**
+	 * Adds noise from the 2D kernel to every point of a grid, the way
+	 * {@link #accumulate(double[], double[], double[], double)} does for the
+	 * plane z = 0.
+	 *
+	 * @param out
+	 *            Values of the grid, indexed by row * xs.length + column
+	 * @param xs
+	 *            X-coordinate of each column
+	 * @param ys
+	 *            Y-coordinate of each row
+	 * @param amplitude
+	 *            Amount to multiply the noise by before adding it
+	 */
+	protected void accumulate2D(double[] out, double[] xs, double[] ys, double amplitude) {
+		int index = 0;
+
+		for (int row = 0; row < ys.length; row++) {
+			for (int col = 0; col < xs.length; col++) {
+				out[index++] += noise2D(xs[col], ys[row]) * amplitude;
+			}
+		}
+	}
+
+	/**
+	 * Computes the coordinate of each column or row of a grid, scaled in the
+	 * same order as the single point octave methods scale them.
+	 *
+	 * @param start
+	 *            Coordinate of the first column or row
+	 * @param count
+	 *            Number of columns or rows
+	 * @param step
+	 *            Distance between neighboring columns or rows
+	 * @param scale
+	 *            Amount the coordinates are scaled by first
+	 * @param frequency
+	 *            Amount the coordinates are scaled by second
+	 * @return The scaled coordinates
+	 */
+	static double[] coordinates(double start, int count, double step, double scale,
+			double frequency) {
+		double[] result = new double[count];
+
+		for (int i = 0; i < count; i++) {
+			result[i] = (start + i * step) * scale * frequency;
+		}
+
+		return result;
+	}
 }
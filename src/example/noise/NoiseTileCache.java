@@ -0,0 +1,174 @@
+package example.noise;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded store of noise values, kept as square tiles of doubles and shared
+ * by any number of {@link CachedNoise} fields. When the store is full the
+ * least recently used tile is dropped.
+ * <p>
+ * Tiles are spread over a fixed number of stripes, each a small LRU map
+ * behind its own lock, so threads reading different tiles seldom wait for
+ * each other. A missing tile is computed outside the lock; if two threads
+ * miss the same tile at once both compute it and one copy is kept, which is
+ * harmless since both hold the same values.
+ */
+public class NoiseTileCache {
+	private static final int STRIPES = 16;
+
+	private final int tileSize;
+	private final Map<Object, double[]>[] stripes;
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	/**
+	 * Creates an empty cache
+	 *
+	 * @param tileSize
+	 *            Number of points along each side of a tile
+	 * @param maxTiles
+	 *            Number of tiles to keep, spread evenly over the stripes
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public NoiseTileCache(int tileSize, int maxTiles) {
+		if (tileSize < 1 || maxTiles < 1) {
+			throw new IllegalArgumentException("tile size and count must be positive");
+		}
+
+		int perStripe = Math.max(1, (maxTiles + STRIPES - 1) / STRIPES);
+
+		this.tileSize = tileSize;
+		this.stripes = new Map[STRIPES];
+
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new LinkedHashMap<Object, double[]>(16, 0.75f, true) {
+
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Object, double[]> eldest) {
+					if (size() > perStripe) {
+						evictions.increment();
+						return true;
+					}
+
+					return false;
+				}
+
+			};
+		}
+	}
+
+	/**
+	 * Gets the number of points along each side of a tile
+	 *
+	 * @return Tile size
+	 */
+	public int getTileSize() {
+		return tileSize;
+	}
+
+	// returns the tile stored under the key, or null, counting the lookup
+	double[] get(Object key) {
+		Map<Object, double[]> stripe = stripe(key);
+		double[] tile;
+
+		synchronized (stripe) {
+			tile = stripe.get(key);
+		}
+
+		if (tile != null) {
+			hits.increment();
+		} else {
+			misses.increment();
+		}
+
+		return tile;
+	}
+
+	// stores a computed tile, returning the one to use if another thread
+	// stored the same tile first
+	double[] put(Object key, double[] tile) {
+		Map<Object, double[]> stripe = stripe(key);
+
+		synchronized (stripe) {
+			double[] existing = stripe.putIfAbsent(key, tile);
+			return existing != null ? existing : tile;
+		}
+	}
+
+	private Map<Object, double[]> stripe(Object key) {
+		int hash = key.hashCode() * 0x9E3779B9;
+		return stripes[(hash >>> 16) & (STRIPES - 1)];
+	}
+
+	/**
+	 * Gets the number of lookups that found their tile
+	 *
+	 * @return Number of hits
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Gets the number of lookups that had to compute their tile
+	 *
+	 * @return Number of misses
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Gets the number of tiles dropped to make room for others
+	 *
+	 * @return Number of evictions
+	 */
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Gets the share of lookups that found their tile
+	 *
+	 * @return Hit rate from 0 to 1, or 0 before the first lookup
+	 */
+	public double getHitRate() {
+		long hits = getHits();
+		long total = hits + getMisses();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/**
+	 * Gets the number of tiles currently stored
+	 *
+	 * @return Number of tiles
+	 */
+	public int size() {
+		int size = 0;
+
+		for (Map<Object, double[]> stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * Drops every tile, leaving the counters as they are
+	 */
+	public void clear() {
+		for (Map<Object, double[]> stripe : stripes) {
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		}
+	}
+
+}
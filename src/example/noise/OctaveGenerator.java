@@ -1,5 +1,7 @@
 package example.noise;
 
+import java.util.Arrays;
+
 /**
  * Creates noise using unbiased octaves
  */
@@ -166,6 +168,101 @@ public abstract class OctaveGenerator {
 		return noise(x, y, 0, frequency, amplitude, normalized);
 	}
 
+	/**
+	 * Generates noise for the 2D coordinates using the specified number of
+	 * octaves and parameters, sampling each octave with
+	 * {@link NoiseGenerator#noise2D(double, double)}. This is cheaper than
+	 * {@link #noise(double, double, double, double, boolean)} but gives
+	 * different values.
+	 *
+	 * @param x
+	 *            X-coordinate
+	 * @param y
+	 *            Y-coordinate
+	 * @param frequency
+	 *            How much to alter the frequency by each octave
+	 * @param amplitude
+	 *            How much to alter the amplitude by each octave
+	 * @param normalized
+	 *            If true, normalize the value to [-1, 1]
+	 * @return Resulting noise
+	 */
+	public double noise2D(double x, double y, double frequency, double amplitude,
+			boolean normalized) {
+		double result = 0;
+		double amp = 1;
+		double freq = 1;
+		double max = 0;
+
+		x *= xScale;
+		y *= yScale;
+
+		for (NoiseGenerator octave : octaves) {
+			result += octave.noise2D(x * freq, y * freq) * amp;
+			max += amp;
+			freq *= frequency;
+			amp *= amplitude;
+		}
+
+		if (normalized) {
+			result /= max;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Computes {@link #noise2D(double, double, double, double, boolean)} along
+	 * with its gradient, from one
+	 * {@link NoiseGenerator#noiseWithGradient(double, double, double[])} per
+	 * octave.
+	 *
+	 * @param x
+	 *            X-coordinate
+	 * @param y
+	 *            Y-coordinate
+	 * @param frequency
+	 *            How much to alter the frequency by each octave
+	 * @param amplitude
+	 *            How much to alter the amplitude by each octave
+	 * @param normalized
+	 *            If true, normalize the value to [-1, 1]
+	 * @param gradient
+	 *            Receives the partial derivatives of the result along x and y
+	 * @return Resulting noise
+	 */
+	public double noiseWithGradient(double x, double y, double frequency, double amplitude,
+			boolean normalized, double[] gradient) {
+		double[] octave = new double[2];
+		double result = 0;
+		double amp = 1;
+		double freq = 1;
+		double max = 0;
+
+		gradient[0] = 0;
+		gradient[1] = 0;
+
+		x *= xScale;
+		y *= yScale;
+
+		for (NoiseGenerator generator : octaves) {
+			result += generator.noiseWithGradient(x * freq, y * freq, octave) * amp;
+			gradient[0] += octave[0] * xScale * freq * amp;
+			gradient[1] += octave[1] * yScale * freq * amp;
+			max += amp;
+			freq *= frequency;
+			amp *= amplitude;
+		}
+
+		if (normalized) {
+			result /= max;
+			gradient[0] /= max;
+			gradient[1] /= max;
+		}
+
+		return result;
+	}
+
 	/**
 	 * Generates noise for the 3D coordinates using the specified number of
 	 * octaves and parameters
@@ -228,4 +325,112 @@ public abstract class OctaveGenerator {
 
 		return result;
 	}
+
+	/**
+	 * Computes {@link #noise(double, double, double, double, double, boolean)}
+	 * along with its gradient, from one
+	 * {@link NoiseGenerator#noiseWithGradient(double, double, double, double[])}
+	 * per octave.
+	 *
+	 * @param x
+	 *            X-coordinate
+	 * @param y
+	 *            Y-coordinate
+	 * @param z
+	 *            Z-coordinate
+	 * @param frequency
+	 *            How much to alter the frequency by each octave
+	 * @param amplitude
+	 *            How much to alter the amplitude by each octave
+	 * @param normalized
+	 *            If true, normalize the value to [-1, 1]
+	 * @param gradient
+	 *            Receives the partial derivatives of the result along x, y
+	 *            and z
+	 * @return Resulting noise
+	 */
+	public double noiseWithGradient(double x, double y, double z, double frequency,
+			double amplitude, boolean normalized, double[] gradient) {
+		double[] octave = new double[3];
+		double result = 0;
+		double amp = 1;
+		double freq = 1;
+		double max = 0;
+
+		gradient[0] = 0;
+		gradient[1] = 0;
+		gradient[2] = 0;
+
+		x *= xScale;
+		y *= yScale;
+		z *= zScale;
+
+		for (NoiseGenerator generator : octaves) {
+			result += generator.noiseWithGradient(x * freq, y * freq, z * freq, octave) * amp;
+			gradient[0] += octave[0] * xScale * freq * amp;
+			gradient[1] += octave[1] * yScale * freq * amp;
+			gradient[2] += octave[2] * zScale * freq * amp;
+			max += amp;
+			freq *= frequency;
+			amp *= amplitude;
+		}
+
+		if (normalized) {
+			result /= max;
+			gradient[0] /= max;
+			gradient[1] /= max;
+			gradient[2] /= max;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Fills a grid with octave noise from the plane z = 0, giving exactly the
+	 * same values as calling
+	 * {@link #noise(double, double, double, double, boolean)} for each point.
+	 * The point at column i and row j of the grid is (x0 + i * step, y0 + j *
+	 * step) and its value is stored at out[j * width + i].
+	 *
+	 * @param out
+	 *            Array to fill, of at least width * height elements
+	 * @param x0
+	 *            X-coordinate of the first column
+	 * @param y0
+	 *            Y-coordinate of the first row
+	 * @param width
+	 *            Number of columns
+	 * @param height
+	 *            Number of rows
+	 * @param step
+	 *            Distance between neighboring columns and rows
+	 * @param frequency
+	 *            How much to alter the frequency by each octave
+	 * @param amplitude
+	 *            How much to alter the amplitude by each octave
+	 * @param normalized
+	 *            If true, normalize the value to [-1, 1]
+	 */
+	public void fill(double[] out, double x0, double y0, int width, int height, double step,
+			double frequency, double amplitude, boolean normalized) {
+		double amp = 1;
+		double freq = 1;
+		double max = 0;
+
+		Arrays.fill(out, 0, width * height, 0);
+
+		for (NoiseGenerator octave : octaves) {
+			octave.accumulate(out, NoiseGenerator.coordinates(x0, width, step, xScale, freq),
+					NoiseGenerator.coordinates(y0, height, step, yScale, freq), amp);
+			max += amp;
+			freq *= frequency;
+			amp *= amplitude;
+		}
+
+		if (normalized) {
+			for (int i = 0; i < width * height; i++) {
+				out[i] /= max;
+			}
+		}
+	}
 }
@@ -53,9 +53,7 @@ public class PerlinNoiseGenerator extends NoiseGenerator {
 	 *            Random to construct with
 	 */
 	public PerlinNoiseGenerator(Random rand) {
-		offsetX = rand.nextDouble() * 256;
-		offsetY = rand.nextDouble() * 256;
-		offsetZ = rand.nextDouble() * 256;
+		super(rand.nextDouble() * 256, rand.nextDouble() * 256, rand.nextDouble() * 256);
 
 		for (int i = 0; i < 256; i++) {
 			perm[i] = rand.nextInt(256);
@@ -164,6 +162,114 @@ public class PerlinNoiseGenerator extends NoiseGenerator {
 								grad(perm[BB + 1], x - 1, y - 1, z - 1))));
 	}
 
+	/**
+	 * Computes 2D perlin noise, blending the gradients of the four corners of
+	 * a square rather than the eight of a cube. The result is exactly
+	 * {@code noise(x, y, -offsetZ)}, the slice of this generator's 3D noise
+	 * through a lattice plane, where {@link #noise(double, double)} slices it
+	 * at the random depth offsetZ. Both slices have the same character, but
+	 * the values differ and this one falls to zero on every lattice point.
+	 */
+	@Override
+	public double noise2D(double x, double y) {
+		x += offsetX;
+		y += offsetY;
+
+		int floorX = floor(x);
+		int floorY = floor(y);
+
+		// Find unit square that contains the point
+		int X = floorX & 255;
+		int Y = floorY & 255;
+
+		// Find relative x, y of the point in the square
+		x -= floorX;
+		y -= floorY;
+
+		// Compute fade curves for each of x, y
+		double fX = fade(x);
+		double fY = fade(y);
+
+		// Hash coordinates of the 4 square corners
+		int A = perm[X] + Y;
+		int AA = perm[A];
+		int AB = perm[A + 1];
+		int B = perm[X + 1] + Y;
+		int BA = perm[B];
+		int BB = perm[B + 1];
+
+		return lerp(fY, lerp(fX, grad(perm[AA], x, y), grad(perm[BA], x - 1, y)),
+				lerp(fX, grad(perm[AB], x, y - 1), grad(perm[BB], x - 1, y - 1)));
+	}
+
+	/**
+	 * Adds noise from the plane z = 0 to every point of a grid. The lattice
+	 * cell and fade curve of each column and of the z plane are worked out
+	 * once rather than for every point, and each point then takes the same
+	 * steps as {@link #noise(double, double, double)}, so the result is
+	 * identical.
+	 */
+	@Override
+	protected void accumulate(double[] out, double[] xs, double[] ys, double amplitude) {
+		int width = xs.length;
+
+		double z = offsetZ;
+		int floorZ = floor(z);
+		int Z = floorZ & 255;
+		z -= floorZ;
+		double fZ = fade(z);
+
+		int[] cellsX = new int[width];
+		double[] relativeX = new double[width];
+		double[] fadesX = new double[width];
+
+		for (int col = 0; col < width; col++) {
+			double x = xs[col] + offsetX;
+			int floorX = floor(x);
+
+			cellsX[col] = floorX & 255;
+			relativeX[col] = x - floorX;
+			fadesX[col] = fade(relativeX[col]);
+		}
+
+		int index = 0;
+
+		for (int row = 0; row < ys.length; row++) {
+
+			double y = ys[row] + offsetY;
+			int floorY = floor(y);
+			int Y = floorY & 255;
+			y -= floorY;
+			double fY = fade(y);
+
+			for (int col = 0; col < width; col++) {
+
+				int X = cellsX[col];
+				double x = relativeX[col];
+				double fX = fadesX[col];
+
+				int A = perm[X] + Y;
+				int AA = perm[A] + Z;
+				int AB = perm[A + 1] + Z;
+				int B = perm[X + 1] + Y;
+				int BA = perm[B] + Z;
+				int BB = perm[B + 1] + Z;
+
+				out[index++] += lerp(fZ,
+						lerp(fY, lerp(fX, grad(perm[AA], x, y, z), grad(perm[BA], x - 1, y, z)),
+								lerp(fX, grad(perm[AB], x, y - 1, z),
+										grad(perm[BB], x - 1, y - 1, z))),
+						lerp(fY, lerp(fX, grad(perm[AA + 1], x, y, z - 1),
+								grad(perm[BA + 1], x - 1, y, z - 1)),
+								lerp(fX, grad(perm[AB + 1], x, y - 1, z - 1),
+										grad(perm[BB + 1], x - 1, y - 1, z - 1))))
+						* amplitude;
+
+			}
+
+		}
+	}
+
 	/**
 	 * Generates noise for the 1D coordinates using the specified number of
 	 * octaves and parameters
@@ -42,11 +42,12 @@ public class SimplexNoiseGenerator extends PerlinNoiseGenerator {
 			{0, 0, 0, 0}, {3, 0, 1, 2}, {3, 0, 2, 1}, {0, 0, 0, 0}, {3, 1, 2, 0}, {2, 1, 0, 3},
 			{0, 0, 0, 0}, {0, 0, 0, 0}, {0, 0, 0, 0}, {3, 1, 0, 2}, {0, 0, 0, 0}, {3, 2, 0, 1},
 			{3, 2, 1, 0}};
-	protected static double offsetW;
+	protected final double offsetW;
 	private static final SimplexNoiseGenerator instance = new SimplexNoiseGenerator();
 
 	protected SimplexNoiseGenerator() {
 		super();
+		offsetW = 0;
 	}
 
 	/**
@@ -82,6 +83,37 @@ public class SimplexNoiseGenerator extends PerlinNoiseGenerator {
 		return g[0] * x + g[1] * y + g[2] * z + g[3] * w;
 	}
 
+	// the contribution t^4 (g . d) of one corner of a 2D simplex, adding its
+	// derivative, t^4 g - 8 t^3 (g . d) d, to the gradient if there is one
+	private static double corner(double t, int g[], double x, double y, double[] gradient) {
+		double t2 = t * t;
+		double dot = dot(g, x, y);
+
+		if (gradient != null) {
+			double slope = -8 * t2 * t * dot;
+			gradient[0] += t2 * t2 * g[0] + slope * x;
+			gradient[1] += t2 * t2 * g[1] + slope * y;
+		}
+
+		return t2 * t2 * dot;
+	}
+
+	// the same for a corner of a 3D simplex
+	private static double corner(double t, int g[], double x, double y, double z,
+			double[] gradient) {
+		double t2 = t * t;
+		double dot = dot(g, x, y, z);
+
+		if (gradient != null) {
+			double slope = -8 * t2 * t * dot;
+			gradient[0] += t2 * t2 * g[0] + slope * x;
+			gradient[1] += t2 * t2 * g[1] + slope * y;
+			gradient[2] += t2 * t2 * g[2] + slope * z;
+		}
+
+		return t2 * t2 * dot;
+	}
+
 	/**
 	 * Computes and returns the 1D unseeded simplex noise for the given
 	 * coordinates in 1D space
@@ -144,12 +176,39 @@ public class SimplexNoiseGenerator extends PerlinNoiseGenerator {
 
 	@Override
 	public double noise(double xin, double yin, double zin) {
+		return noiseWithGradient(xin, yin, zin, null);
+	}
+
+	/**
+	 * Computes the 3D simplex noise for the given coordinates along with its
+	 * gradient, from the same evaluation. The value is exactly that of
+	 * {@link #noise(double, double, double)}.
+	 *
+	 * @param xin
+	 *            X coordinate
+	 * @param yin
+	 *            Y coordinate
+	 * @param zin
+	 *            Z coordinate
+	 * @param gradient
+	 *            Receives the partial derivatives of the noise along x, y and
+	 *            z, or null to skip them
+	 * @return Noise at given location, from range -1 to 1
+	 */
+	@Override
+	public double noiseWithGradient(double xin, double yin, double zin, double[] gradient) {
 		xin += offsetX;
 		yin += offsetY;
 		zin += offsetZ;
 
 		double n0, n1, n2, n3; // Noise contributions from the four corners
 
+		if (gradient != null) {
+			gradient[0] = 0;
+			gradient[1] = 0;
+			gradient[2] = 0;
+		}
+
 		// Skew the input space to determine which simplex cell we're in
 		double s = (xin + yin + zin) * F3; // Very nice and simple skew factor
 											// for 3D
@@ -255,32 +314,34 @@ public class SimplexNoiseGenerator extends PerlinNoiseGenerator {
 		if (t0 < 0) {
 			n0 = 0.0;
 		} else {
-			t0 *= t0;
-			n0 = t0 * t0 * dot(grad3[gi0], x0, y0, z0);
+			n0 = corner(t0, grad3[gi0], x0, y0, z0, gradient);
 		}
 
 		double t1 = 0.6 - x1 * x1 - y1 * y1 - z1 * z1;
 		if (t1 < 0) {
 			n1 = 0.0;
 		} else {
-			t1 *= t1;
-			n1 = t1 * t1 * dot(grad3[gi1], x1, y1, z1);
+			n1 = corner(t1, grad3[gi1], x1, y1, z1, gradient);
 		}
 
 		double t2 = 0.6 - x2 * x2 - y2 * y2 - z2 * z2;
 		if (t2 < 0) {
 			n2 = 0.0;
 		} else {
-			t2 *= t2;
-			n2 = t2 * t2 * dot(grad3[gi2], x2, y2, z2);
+			n2 = corner(t2, grad3[gi2], x2, y2, z2, gradient);
 		}
 
 		double t3 = 0.6 - x3 * x3 - y3 * y3 - z3 * z3;
 		if (t3 < 0) {
 			n3 = 0.0;
 		} else {
-			t3 *= t3;
-			n3 = t3 * t3 * dot(grad3[gi3], x3, y3, z3);
+			n3 = corner(t3, grad3[gi3], x3, y3, z3, gradient);
+		}
+
+		if (gradient != null) {
+			gradient[0] *= 32.0;
+			gradient[1] *= 32.0;
+			gradient[2] *= 32.0;
 		}
 
 		// Add contributions from each corner to get the final noise value.
@@ -290,11 +351,35 @@ public class SimplexNoiseGenerator extends PerlinNoiseGenerator {
 
 	@Override
 	public double noise(double xin, double yin) {
+		return noiseWithGradient(xin, yin, null);
+	}
+
+	/**
+	 * Computes the 2D simplex noise for the given coordinates along with its
+	 * gradient, from the same evaluation. The value is exactly that of
+	 * {@link #noise(double, double)}.
+	 *
+	 * @param xin
+	 *            X coordinate
+	 * @param yin
+	 *            Y coordinate
+	 * @param gradient
+	 *            Receives the partial derivatives of the noise along x and y,
+	 *            or null to skip them
+	 * @return Noise at given location, from range -1 to 1
+	 */
+	@Override
+	public double noiseWithGradient(double xin, double yin, double[] gradient) {
 		xin += offsetX;
 		yin += offsetY;
 
 		double n0, n1, n2; // Noise contributions from the three corners
 
+		if (gradient != null) {
+			gradient[0] = 0;
+			gradient[1] = 0;
+		}
+
 		// Skew the input space to determine which simplex cell we're in
 		double s = (xin + yin) * F2; // Hairy factor for 2D
 		int i = floor(xin + s);
@@ -342,25 +427,27 @@ public class SimplexNoiseGenerator extends PerlinNoiseGenerator {
 		if (t0 < 0) {
 			n0 = 0.0;
 		} else {
-			t0 *= t0;
-			n0 = t0 * t0 * dot(grad3[gi0], x0, y0); // (x,y) of grad3 used for
-													// 2D gradient
+			// (x,y) of grad3 used for 2D gradient
+			n0 = corner(t0, grad3[gi0], x0, y0, gradient);
 		}
 
 		double t1 = 0.5 - x1 * x1 - y1 * y1;
 		if (t1 < 0) {
 			n1 = 0.0;
 		} else {
-			t1 *= t1;
-			n1 = t1 * t1 * dot(grad3[gi1], x1, y1);
+			n1 = corner(t1, grad3[gi1], x1, y1, gradient);
 		}
 
 		double t2 = 0.5 - x2 * x2 - y2 * y2;
 		if (t2 < 0) {
 			n2 = 0.0;
 		} else {
-			t2 *= t2;
-			n2 = t2 * t2 * dot(grad3[gi2], x2, y2);
+			n2 = corner(t2, grad3[gi2], x2, y2, gradient);
+		}
+
+		if (gradient != null) {
+			gradient[0] *= 70.0;
+			gradient[1] *= 70.0;
 		}
 
 		// Add contributions from each corner to get the final noise value.
@@ -368,6 +455,34 @@ public class SimplexNoiseGenerator extends PerlinNoiseGenerator {
 		return 70.0 * (n0 + n1 + n2);
 	}
 
+	/**
+	 * Returns the 2D simplex noise of {@link #noise(double, double)}, which
+	 * blends three corners of a triangle. The octave methods that take 2D
+	 * coordinates without this suffix sample the plane z = 0 of the 3D noise
+	 * instead, which blends four corners of a tetrahedron; the two have the
+	 * same character but different values, and the 2D noise reaches further
+	 * towards -1 and 1.
+	 */
+	@Override
+	public double noise2D(double x, double y) {
+		return noise(x, y);
+	}
+
+	/**
+	 * Adds noise from the plane z = 0 to every point of a grid, using the
+	 * simplex kernel rather than the perlin one this class inherits.
+	 */
+	@Override
+	protected void accumulate(double[] out, double[] xs, double[] ys, double amplitude) {
+		int index = 0;
+
+		for (int row = 0; row < ys.length; row++) {
+			for (int col = 0; col < xs.length; col++) {
+				out[index++] += noise(xs[col], ys[row], 0) * amplitude;
+			}
+		}
+	}
+
 	/**
 	 * Computes and returns the 4D simplex noise for the given coordinates in 4D
 	 * space
@@ -0,0 +1,194 @@
+package example.noise;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fills large grids with octave noise by splitting them into square tiles
+ * that are filled in parallel on a fork/join pool.
+ *
+ * <p>
+ * Every tile samples the same coordinates a single call to
+ * {@link NoiseGenerator#fill(double[], double, double, int, int, double, int, double, double, boolean)}
+ * would, and adds the octaves up in the same order, so the result is exactly
+ * that of the single call whatever the tile size, the number of threads or
+ * the order tiles finish in.
+ * </p>
+ */
+public class TiledNoiseGenerator {
+	private final NoiseGenerator noise;
+	private final int octaves;
+	private final double frequency;
+	private final double amplitude;
+	private final boolean normalized;
+
+	private int tileSize = 64;
+	private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+	/**
+	 * Creates a tiled generator for the given noise and octave parameters
+	 *
+	 * @param noise
+	 *            Generator to sample
+	 * @param octaves
+	 *            Number of octaves to use
+	 * @param frequency
+	 *            How much to alter the frequency by each octave
+	 * @param amplitude
+	 *            How much to alter the amplitude by each octave
+	 * @param normalized
+	 *            If true, normalize the values to [-1, 1]
+	 */
+	public TiledNoiseGenerator(NoiseGenerator noise, int octaves, double frequency,
+			double amplitude, boolean normalized) {
+		this.noise = noise;
+		this.octaves = octaves;
+		this.frequency = frequency;
+		this.amplitude = amplitude;
+		this.normalized = normalized;
+	}
+
+	/**
+	 * Sets the width and height of the square tiles filled as one task
+	 *
+	 * @param tileSize
+	 *            Number of points along each side of a tile
+	 */
+	public void setTileSize(int tileSize) {
+		if (tileSize < 1) {
+			throw new IllegalArgumentException("tile size must be positive: " + tileSize);
+		}
+
+		this.tileSize = tileSize;
+	}
+
+	/**
+	 * Sets the pool that fills the tiles
+	 *
+	 * @param pool
+	 *            Pool to fill with
+	 */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Fills a new grid, blocking until it is done
+	 *
+	 * @param x0
+	 *            X-coordinate of the first column
+	 * @param y0
+	 *            Y-coordinate of the first row
+	 * @param width
+	 *            Number of columns
+	 * @param height
+	 *            Number of rows
+	 * @param step
+	 *            Distance between neighboring columns and rows
+	 * @return The values, indexed by row * width + column
+	 */
+	public double[] fill(double x0, double y0, int width, int height, double step) {
+		double[] out = new double[width * height];
+		fill(out, x0, y0, width, height, step);
+		return out;
+	}
+
+	/**
+	 * Fills a grid, blocking until it is done
+	 *
+	 * @param out
+	 *            Array to fill, of at least width * height elements, indexed
+	 *            by row * width + column
+	 * @param x0
+	 *            X-coordinate of the first column
+	 * @param y0
+	 *            Y-coordinate of the first row
+	 * @param width
+	 *            Number of columns
+	 * @param height
+	 *            Number of rows
+	 * @param step
+	 *            Distance between neighboring columns and rows
+	 */
+	public void fill(double[] out, double x0, double y0, int width, int height, double step) {
+		double[][] xs = new double[octaves][];
+		double[][] ys = new double[octaves][];
+		double[] amps = new double[octaves];
+		double freq = frequency;
+		double amp = amplitude;
+		double max = 0;
+
+		// the coordinates of the whole grid are worked out once, so each tile
+		// samples exactly the points a single fill would
+		for (int i = 0; i < octaves; i++) {
+			xs[i] = NoiseGenerator.coordinates(x0, width, step, 1, freq);
+			ys[i] = NoiseGenerator.coordinates(y0, height, step, 1, freq);
+			amps[i] = amp;
+			max += amp;
+			freq *= frequency;
+			amp *= amplitude;
+		}
+
+		double total = max;
+		int size = tileSize;
+
+		pool.invoke(new RecursiveAction() {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void compute() {
+				List<RecursiveAction> tiles = new ArrayList<RecursiveAction>();
+
+				for (int row = 0; row < height; row += size) {
+					for (int col = 0; col < width; col += size) {
+
+						int tileCol = col;
+						int tileRow = row;
+						int tileWidth = Math.min(size, width - col);
+						int tileHeight = Math.min(size, height - row);
+
+						tiles.add(new RecursiveAction() {
+
+							private static final long serialVersionUID = 1L;
+
+							@Override
+							protected void compute() {
+								fillTile(out, width, xs, ys, amps, total, tileCol, tileRow,
+										tileWidth, tileHeight);
+							}
+
+						});
+
+					}
+				}
+
+				invokeAll(tiles);
+			}
+
+		});
+	}
+
+	private void fillTile(double[] out, int width, double[][] xs, double[][] ys, double[] amps,
+			double max, int col, int row, int tileWidth, int tileHeight) {
+		double[] tile = new double[tileWidth * tileHeight];
+
+		for (int i = 0; i < octaves; i++) {
+			noise.accumulate(tile, Arrays.copyOfRange(xs[i], col, col + tileWidth),
+					Arrays.copyOfRange(ys[i], row, row + tileHeight), amps[i]);
+		}
+
+		for (int r = 0; r < tileHeight; r++) {
+			for (int c = 0; c < tileWidth; c++) {
+
+				double value = tile[r * tileWidth + c];
+				out[(row + r) * width + col + c] = normalized ? value / max : value;
+
+			}
+		}
+	}
+
+}